@@ -23,11 +23,15 @@ import com.google.common.util.concurrent.ListenableFuture;
 
 import java.nio.ByteBuffer;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class CameraProcess {
     private static final String TAG = "CameraProcess";
 
     private ListenableFuture<ProcessCameraProvider> cameraProviderFuture;
+    // Frames are delivered off the main thread so a slow analyzer never blocks the UI.
+    private ExecutorService analysisExecutor;
     private int REQUEST_CODE_PERMISSIONS = 1001;
     private final String[] REQUIRED_PERMISSIONS = new String[]{"android.permission.CAMERA",
             "android.permission.WRITE_EXTERNAL_STORAGE"};
@@ -73,7 +77,7 @@ public class CameraProcess {
 //                            .setTargetRotation(Surface.ROTATION_90)
                             .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
                             .build();
-                    imageAnalysis.setAnalyzer(ContextCompat.getMainExecutor(context), analyzer);
+                    imageAnalysis.setAnalyzer(analysisExecutor(), analyzer);
                     Preview previewBuilder = new Preview.Builder()
 //                            .setTargetResolution(new Size(1080,1440))
                             .setTargetAspectRatio(AspectRatio.RATIO_4_3)
@@ -94,6 +98,23 @@ public class CameraProcess {
             }
         }, ContextCompat.getMainExecutor(context));
     }
+    private synchronized ExecutorService analysisExecutor() {
+        if (analysisExecutor == null) {
+            analysisExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "camera-analysis"));
+        }
+        return analysisExecutor;
+    }
+
+    /**
+     * Stop the analysis executor once the camera is no longer used.
+     */
+    public synchronized void shutdown() {
+        if (analysisExecutor != null) {
+            analysisExecutor.shutdown();
+            analysisExecutor = null;
+        }
+    }
+
     /**
      * Print out the width and height supported by the camera
      * @param activity
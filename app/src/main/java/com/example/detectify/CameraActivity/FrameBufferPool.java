@@ -0,0 +1,136 @@
+package com.example.detectify.CameraActivity;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reusable per-frame buffers: plane copies ({@code byte[]}) and ARGB_8888 overlay bitmaps, kept
+ * by their geometry so a steady camera stream allocates them only for the first few frames.
+ * Each geometry keeps at most {@code maxPerGeometry} free buffers and only the
+ * {@code maxGeometries} most recently used geometries are kept, so a rotation or preview
+ * change cannot grow the pool without bound.
+ *
+ * Hits and misses are counted so the reuse can be checked in the log.
+ */
+class FrameBufferPool {
+    private static final String TAG = "FrameBufferPool";
+
+    private static final int BYTES = 0;
+    private static final int BITMAP = 1;
+
+    private final int maxPerGeometry;
+    private final int maxGeometries;
+    // Access-ordered, so the first entry is the least recently used geometry.
+    private final LinkedHashMap<Long, ArrayDeque<Object>> free = new LinkedHashMap<>(8, 0.75f, true);
+    private long hits;
+    private long misses;
+
+    FrameBufferPool(int maxPerGeometry, int maxGeometries) {
+        this.maxPerGeometry = maxPerGeometry;
+        this.maxGeometries = maxGeometries;
+    }
+
+    private static long key(int kind, int width, int height) {
+        return ((long) kind << 62) | ((long) width << 31) | height;
+    }
+
+    byte[] takeBytes(int length) {
+        byte[] bytes = (byte[]) take(key(BYTES, length, 0));
+        return bytes != null ? bytes : new byte[length];
+    }
+
+    void releaseBytes(byte[] bytes) {
+        release(key(BYTES, bytes.length, 0), bytes);
+    }
+
+    /** A transparent ARGB_8888 bitmap of the given size. */
+    Bitmap takeBitmap(int width, int height) {
+        Bitmap bitmap = (Bitmap) take(key(BITMAP, width, height));
+        if (bitmap == null) {
+            return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        }
+        bitmap.eraseColor(Color.TRANSPARENT);
+        return bitmap;
+    }
+
+    void releaseBitmap(Bitmap bitmap) {
+        if (bitmap.isRecycled() || !bitmap.isMutable() || bitmap.getConfig() != Bitmap.Config.ARGB_8888) {
+            return;
+        }
+        release(key(BITMAP, bitmap.getWidth(), bitmap.getHeight()), bitmap);
+    }
+
+    private synchronized Object take(long key) {
+        ArrayDeque<Object> shelf = free.get(key);
+        Object buffer = shelf == null ? null : shelf.pollLast();
+        if (buffer != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return buffer;
+    }
+
+    private synchronized void release(long key, Object buffer) {
+        ArrayDeque<Object> shelf = free.get(key);
+        if (shelf == null) {
+            shelf = new ArrayDeque<>(maxPerGeometry);
+            free.put(key, shelf);
+            Iterator<Map.Entry<Long, ArrayDeque<Object>>> eldest = free.entrySet().iterator();
+            while (free.size() > maxGeometries) {
+                discard(eldest.next().getValue());
+                eldest.remove();
+            }
+        }
+        if (shelf.size() < maxPerGeometry) {
+            shelf.addLast(buffer);
+        } else {
+            discard(buffer);
+        }
+    }
+
+    private static void discard(Object buffer) {
+        if (buffer instanceof Bitmap) {
+            ((Bitmap) buffer).recycle();
+        } else if (buffer instanceof ArrayDeque) {
+            for (Object item : (ArrayDeque<?>) buffer) {
+                discard(item);
+            }
+        }
+    }
+
+    /** Drops every free buffer, for {@code onTrimMemory}. Buffers in use are released normally later. */
+    synchronized void clear() {
+        for (ArrayDeque<Object> shelf : free.values()) {
+            discard(shelf);
+        }
+        free.clear();
+        Log.i(TAG, "Cleared, " + this);
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    /** Share of takes served from the pool, 0 before the first take. */
+    synchronized float getHitRate() {
+        long takes = hits + misses;
+        return takes == 0 ? 0f : hits / (float) takes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "FrameBufferPool{hits=" + hits + ", misses=" + misses
+                + ", hitRate=" + String.format("%.3f", getHitRate()) + ", geometries=" + free.size() + "}";
+    }
+}
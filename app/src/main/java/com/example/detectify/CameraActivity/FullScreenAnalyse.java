@@ -16,11 +16,21 @@ import androidx.camera.core.ImageAnalysis;
 import androidx.camera.core.ImageProxy;
 import androidx.camera.view.PreviewView;
 
+import com.example.detectify.Detector.DetectionResult;
+import com.example.detectify.Detector.InterpreterPool;
 import com.example.detectify.Detector.Yolov5TFLiteDetector;
-import com.example.detectify.Utility.Recognition;
 
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
 import io.reactivex.rxjava3.core.Observable;
@@ -54,6 +64,46 @@ public class FullScreenAnalyse implements ImageAnalysis.Analyzer {
     private HashMap<String, Integer> spikePerPot = new HashMap<>();
     private boolean detectionBit = false;
 
+    // Geometry of the last drawn frame, so refreshLatest() can redraw it without a new image.
+    private static class FrameGeometry {
+        final Matrix modelToPreviewTransform;
+        final int previewWidth;
+        final int previewHeight;
+
+        FrameGeometry(Matrix modelToPreviewTransform, int previewWidth, int previewHeight) {
+            this.modelToPreviewTransform = modelToPreviewTransform;
+            this.previewWidth = previewWidth;
+            this.previewHeight = previewHeight;
+        }
+    }
+
+    private volatile FrameGeometry lastFrame;
+
+    // Detection results are reused across frames; one is taken per frame in flight.
+    private final ConcurrentLinkedQueue<DetectionResult> freeResults = new ConcurrentLinkedQueue<>();
+    private volatile YuvInputMapping inputMapping;
+    private static final int POOL_STATS_INTERVAL = 300;
+    // Plane copies and overlay bitmaps are recycled across frames. A frame holds two same-sized
+    // chroma planes and up to three frames are alive at once, so 6 buffers per geometry; 8
+    // geometries cover the luma, chroma and overlay sizes of a few preview configurations.
+    private final FrameBufferPool bufferPool = new FrameBufferPool(6, 8);
+    private final AtomicInteger analyzedFrames = new AtomicInteger();
+    // Bitmap shown on boxLabelCanvas; only touched on the main thread.
+    private Bitmap displayedBitmap;
+    // Frames are handed from the analysis executor to one inference worker, newest frame wins.
+    private final ExecutorService inferenceExecutor = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "frame-inference"));
+    private final AtomicReference<CameraFrame> pendingFrame = new AtomicReference<>();
+    // Spare frame holders, handed over like the pending frame. At most three frames are alive:
+    // one being copied, one pending and one in inference.
+    private final AtomicReferenceArray<CameraFrame> spareFrames = new AtomicReferenceArray<>(3);
+    // Only used on the inference worker.
+    private final float[] matrixScratch = new float[9];
+    private final AtomicBoolean workerScheduled = new AtomicBoolean();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final Paint boxPaint = new Paint();
+    private final Paint textPaint = new Paint();
+
     public FullScreenAnalyse(Context context,
                              PreviewView previewView,
                              ImageView boxLabelCanvas,
@@ -76,169 +126,352 @@ public class FullScreenAnalyse implements ImageAnalysis.Analyzer {
         //spikePerPot.put("Pot" + nextPotId, 0);
         String initialPotKey = "Pot" + nextPotId;
         spikePerPot.put(initialPotKey, 0);
+
+        // border brush
+        boxPaint.setStrokeWidth(5);
+        boxPaint.setStyle(Paint.Style.STROKE);
+        boxPaint.setColor(Color.RED);
+        // Font brush
+        textPaint.setTextSize(50);
+        textPaint.setColor(Color.RED);
+        textPaint.setStyle(Paint.Style.FILL);
     }
 
     public HashMap<String, Integer> getSpikePerPot() {
         return spikePerPot;
     }
 
-    @Override
-    public void analyze(@NonNull ImageProxy image) {
-        int previewHeight = previewView.getHeight();
-        int previewWidth = previewView.getWidth();
+    /** Drops the pooled frame buffers; call from the activity's {@code onTrimMemory}. */
+    public void trimMemory() {
+        bufferPool.clear();
+    }
 
-        // Here Observable puts the logic of image analysis into sub-threads for calculation,
-        // and gets back the corresponding data when rendering the UI to avoid front-end UI lags.
-        Observable.create( (ObservableEmitter<Result> emitter) -> {
-            long start = System.currentTimeMillis();
+    /** Hit rate of the frame buffer pool, for checking that steady frames allocate nothing. */
+    public float getBufferPoolHitRate() {
+        return bufferPool.getHitRate();
+    }
+
+    /** Frames replaced by a newer one before the inference worker got to them. */
+    public long getDroppedFrameCount() {
+        return droppedFrames.get();
+    }
 
-            byte[][] yuvBytes = new byte[3][];
+    /** Stops the inference worker; frames that arrive afterwards are ignored. */
+    public void shutdown() {
+        inferenceExecutor.shutdown();
+        CameraFrame frame = pendingFrame.getAndSet(null);
+        if (frame != null) {
+            releaseFrame(frame);
+        }
+    }
+
+    // A camera frame copied out of its ImageProxy, waiting for the inference worker.
+    private static class CameraFrame {
+        final byte[][] planes = new byte[3][];
+        int width;
+        int height;
+        int yRowStride;
+        int uvRowStride;
+        int uvPixelStride;
+        int previewWidth;
+        int previewHeight;
+        long arrivalTime;
+    }
+
+    /**
+     * Runs on the camera's analysis executor. The planes are copied into pooled buffers and the
+     * ImageProxy is closed at once, so the camera never waits for inference. Only the newest
+     * copied frame is kept; a frame still waiting when the next one arrives is dropped.
+     */
+    @Override
+    public void analyze(@NonNull ImageProxy image) {
+        CameraFrame frame = takeFrame();
+        try {
             ImageProxy.PlaneProxy[] planes = image.getPlanes();
-            int imageHeight = image.getHeight();
-            int imagewWidth = image.getWidth();
-
-            imageProcess.fillBytes(planes, yuvBytes);
-            int yRowStride = planes[0].getRowStride();
-            final int uvRowStride = planes[1].getRowStride();
-            final int uvPixelStride = planes[1].getPixelStride();
-
-            int[] rgbBytes = new int[imageHeight * imagewWidth];
-            imageProcess.YUV420ToARGB8888(
-                    yuvBytes[0],
-                    yuvBytes[1],
-                    yuvBytes[2],
-                    imagewWidth,
-                    imageHeight,
-                    yRowStride,
-                    uvRowStride,
-                    uvPixelStride,
-                    rgbBytes);
-
-            // Original image bitmap
-            Bitmap imageBitmap = Bitmap.createBitmap(imagewWidth, imageHeight, Bitmap.Config.ARGB_8888);
-            imageBitmap.setPixels(rgbBytes, 0, imagewWidth, 0, 0, imagewWidth, imageHeight);
-
-            // The image adapts to the screen fill_start format bitmap
-            double scale = Math.max(
-                    previewHeight / (double) (rotation % 180 == 0 ? imagewWidth : imageHeight),
-                    previewWidth / (double) (rotation % 180 == 0 ? imageHeight : imagewWidth)
-            );
-            Matrix fullScreenTransform = imageProcess.getTransformationMatrix(
-                    imagewWidth, imageHeight,
-                    (int) (scale * imageHeight), (int) (scale * imagewWidth),
-                    rotation % 180 == 0 ? 90 : 0, false
-            );
-
-            // Full size bitmap adapted to preview
-            Bitmap fullImageBitmap = Bitmap.createBitmap(imageBitmap, 0, 0, imagewWidth, imageHeight, fullScreenTransform, false);
-            // Crop the bitmap to the same size as the preview on the screen
-            Bitmap cropImageBitmap = Bitmap.createBitmap(
-                    fullImageBitmap, 0, 0,
-                    previewWidth, previewHeight
-            );
-
-            // Model input bitmap
-            Matrix previewToModelTransform =
-                    imageProcess.getTransformationMatrix(
-                            cropImageBitmap.getWidth(), cropImageBitmap.getHeight(),
-                            yolov5TFLiteDetector.getInputSize().getWidth(),
-                            yolov5TFLiteDetector.getInputSize().getHeight(),
-                            0, false);
-            Bitmap modelInputBitmap = Bitmap.createBitmap(cropImageBitmap, 0, 0,
-                    cropImageBitmap.getWidth(), cropImageBitmap.getHeight(),
-                    previewToModelTransform, false);
-
-            Matrix modelToPreviewTransform = new Matrix();
-            previewToModelTransform.invert(modelToPreviewTransform);
-
-            ArrayList<Recognition> recognitions = yolov5TFLiteDetector.detect(modelInputBitmap);
-
-            Bitmap emptyCropSizeBitmap = Bitmap.createBitmap(previewWidth, previewHeight, Bitmap.Config.ARGB_8888);
-            Canvas cropCanvas = new Canvas(emptyCropSizeBitmap);
-            // border brush
-            Paint boxPaint = new Paint();
-            boxPaint.setStrokeWidth(5);
-            boxPaint.setStyle(Paint.Style.STROKE);
-            boxPaint.setColor(Color.RED);
-            // Font brush
-            Paint textPain = new Paint();
-            textPain.setTextSize(50);
-            textPain.setColor(Color.RED);
-            textPain.setStyle(Paint.Style.FILL);
-
-            // Object counts for current frame
-            long start_count = System.currentTimeMillis();
-            HashMap<String, Integer> objectCounts = new HashMap<>();
-            for (Recognition res : recognitions) {
-                RectF location = res.getLocation();
-                String label = res.getLabelName();
-                float confidence = res.getConfidence();
-                modelToPreviewTransform.mapRect(location);
-                cropCanvas.drawRect(location, boxPaint);
-                cropCanvas.drawText(label + ":" + String.format("%.2f", confidence), location.left, location.top, textPain);
-
-                objectCounts.put(label, objectCounts.getOrDefault(label, 0) + 1);
+            for (int i = 0; i < 3; i++) {
+                ByteBuffer buffer = planes[i].getBuffer();
+                buffer.rewind();
+                frame.planes[i] = bufferPool.takeBytes(buffer.remaining());
+                buffer.get(frame.planes[i]);
+            }
+            frame.width = image.getWidth();
+            frame.height = image.getHeight();
+            frame.yRowStride = planes[0].getRowStride();
+            frame.uvRowStride = planes[1].getRowStride();
+            frame.uvPixelStride = planes[1].getPixelStride();
+        } finally {
+            image.close();
+        }
+        frame.previewWidth = previewView.getWidth();
+        frame.previewHeight = previewView.getHeight();
+        frame.arrivalTime = System.currentTimeMillis();
+
+        CameraFrame replaced = pendingFrame.getAndSet(frame);
+        if (replaced != null) {
+            droppedFrames.incrementAndGet();
+            releaseFrame(replaced);
+        }
+        if (workerScheduled.compareAndSet(false, true)) {
+            try {
+                inferenceExecutor.execute(this::drainFrames);
+            } catch (RejectedExecutionException e) {
+                // Shut down; the frame stays pending and is never analysed.
+                workerScheduled.set(false);
+            }
+        }
+    }
 
+    // The single inference worker: detects the newest pending frame until none is left.
+    private void drainFrames() {
+        while (true) {
+            CameraFrame frame = pendingFrame.getAndSet(null);
+            if (frame == null) {
+                workerScheduled.set(false);
+                // A frame posted between the empty check and the flag reset still needs a worker.
+                if (pendingFrame.get() == null || !workerScheduled.compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
             }
+            try {
+                processFrame(frame);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Frame analysis failed", e);
+            } finally {
+                releaseFrame(frame);
+            }
+        }
+    }
 
-            // Determine the current pot key
-            String currentPotKey = "Pot" + nextPotId;
+    private CameraFrame takeFrame() {
+        for (int i = 0; i < spareFrames.length(); i++) {
+            CameraFrame frame = spareFrames.getAndSet(i, null);
+            if (frame != null) {
+                return frame;
+            }
+        }
+        return new CameraFrame();
+    }
 
-            // Process detections
-            if (objectCounts.isEmpty()) {
-                detectionBit = true;
-                // If no spikes have been detected, keep the current pot count unchanged.
-                if (spikePerPot.getOrDefault(currentPotKey, 0) == 0) {
-                    spikePerPot.put(currentPotKey, -1); // Mark as no spike detected.
-                }
-            } else {
-                int potCount = objectCounts.getOrDefault("Pot", 0);
-                int spikeCount = objectCounts.getOrDefault("Wheat Spike", 0);
-                if (potCount > 0) {
-                    if (detectionBit) {
-                        // Move to the next pot when a new pot is detected
-                        currentPotKey = "Pot" + (++nextPotId);
-                        spikePerPot.put(currentPotKey, 0);
-                        detectionBit = false;
-                        //nextPotId++;
-                        //spikePerPotSet.put("Pot" + nextPotId, new HashSet<>());
-                        //spikePerPot.put("Pot" + nextPotId, 0);
-                        //detectionBit = false;
-                    }
-                    if (spikeCount> 0) {
-                        //spikePerPotSet.get("Pot" + nextPotId).add(objectCounts.get("Wheat Spike"));
-                        // Dynamically update the maximum spike count for the current pot
-                        spikePerPot.put(currentPotKey, Math.max(spikePerPot.getOrDefault(currentPotKey, 0), spikeCount));
-                    }
-                } else if (spikeCount > 0) {
-                    // Spikes detected but no pot, log a warning or skip
-                    System.out.println("Warning: Spikes detected without a pot. Ignoring spikes.");
-                }
+    private void releaseFrame(CameraFrame frame) {
+        for (int i = 0; i < frame.planes.length; i++) {
+            if (frame.planes[i] != null) {
+                bufferPool.releaseBytes(frame.planes[i]);
+                frame.planes[i] = null;
+            }
+        }
+        for (int i = 0; i < spareFrames.length(); i++) {
+            if (spareFrames.compareAndSet(i, null, frame)) {
+                return;
             }
+        }
+    }
 
-            //Log.d("spike", objectCounts.toString());
-            //Log.d("spike", String.valueOf(spikePerPot));
+    private void processFrame(CameraFrame cameraFrame) {
+        InterpreterPool interpreterPool = yolov5TFLiteDetector.getInterpreterPool();
+        if (interpreterPool == null) {
+            return;
+        }
+        int previewWidth = cameraFrame.previewWidth;
+        int previewHeight = cameraFrame.previewHeight;
+        int imageHeight = cameraFrame.height;
+        int imagewWidth = cameraFrame.width;
+
+        // The image adapts to the screen fill_start format
+        double scale = Math.max(
+                previewHeight / (double) (rotation % 180 == 0 ? imagewWidth : imageHeight),
+                previewWidth / (double) (rotation % 180 == 0 ? imageHeight : imagewWidth)
+        );
+        Matrix fullScreenTransform = imageProcess.getTransformationMatrix(
+                imagewWidth, imageHeight,
+                (int) (scale * imageHeight), (int) (scale * imagewWidth),
+                rotation % 180 == 0 ? 90 : 0, false
+        );
+
+        // Model input: the whole preview scaled to the model size
+        int inputWidth = yolov5TFLiteDetector.getInputSize().getWidth();
+        int inputHeight = yolov5TFLiteDetector.getInputSize().getHeight();
+        Matrix previewToModelTransform =
+                imageProcess.getTransformationMatrix(
+                        previewWidth, previewHeight,
+                        inputWidth, inputHeight,
+                        0, false);
+
+        Matrix modelToPreviewTransform = new Matrix();
+        previewToModelTransform.invert(modelToPreviewTransform);
+
+        // Sample the camera planes straight into the model input: model -> preview -> camera image
+        Matrix modelToImageTransform = new Matrix();
+        fullScreenTransform.invert(modelToImageTransform);
+        modelToImageTransform.preConcat(modelToPreviewTransform);
+        YuvInputMapping mapping = inputMapping(modelToImageTransform, cameraFrame, inputWidth, inputHeight);
+        byte[] yPlane = cameraFrame.planes[0];
+        byte[] uPlane = cameraFrame.planes[1];
+        byte[] vPlane = cameraFrame.planes[2];
+
+        InterpreterPool.Slot slot = interpreterPool.acquire();
+        if (slot == null) {
+            // The model was closed while this frame was being prepared.
+            return;
+        }
+        DetectionResult detections = takeResult();
+        try {
+            yolov5TFLiteDetector.detect(slot,
+                    (row, argb) -> mapping.readRow(yPlane, uPlane, vPlane, row, argb), detections);
+        } finally {
+            interpreterPool.release(slot);
+        }
 
-            long end = System.currentTimeMillis();
-            long costTime = (end - start);
-            long count_time = (end - start_count);
-            // Log.d("count_time", String.valueOf(count_time));
-            image.close();
-            emitter.onNext(new Result(costTime, emptyCropSizeBitmap));
-        }).subscribeOn(Schedulers.io()) // The observer is defined here, which is the thread of the above code. If it is not defined, it is synchronized with the main thread, not asynchronous.
-                // Here is back to the main thread, the observer receives the data sent by the emitter for processing
+        FrameGeometry frame = new FrameGeometry(modelToPreviewTransform, previewWidth, previewHeight);
+        lastFrame = frame;
+
+        // Object counts for current frame
+        Bitmap emptyCropSizeBitmap = drawDetections(detections, frame);
+        updatePotCounts(detections.getCount(), countLabel(detections, "Pot"), countLabel(detections, "Wheat Spike"));
+        freeResults.offer(detections);
+
+        // Time from the frame's arrival, so waiting behind the previous frame is included.
+        long costTime = System.currentTimeMillis() - cameraFrame.arrivalTime;
+        if (analyzedFrames.incrementAndGet() % POOL_STATS_INTERVAL == 0) {
+            Log.d(TAG, bufferPool + ", dropped frames " + droppedFrames.get());
+        }
+        Result result = new Result(costTime, emptyCropSizeBitmap);
+        // Back on the main thread for the views.
+        AndroidSchedulers.mainThread().scheduleDirect(() -> {
+            showOverlay(result.bitmap);
+            frameSizeTextView.setText(previewHeight + "x" + previewWidth);
+            inferenceTimeTextView.setText(Long.toString(result.costTime) + "ms");
+            // Update objectCountsTextView with the latest count
+            objectCountsTextView.setText(generateCountsText());
+        });
+    }
+
+    /**
+     * Redraws the last frame after a threshold change. The detector decodes its cached raw output
+     * again instead of waiting for the next inference, and the current pot's spike count follows.
+     */
+    public void refreshLatest() {
+        FrameGeometry frame = lastFrame;
+        if (frame == null) return;
+        Observable.create((ObservableEmitter<Bitmap> emitter) -> {
+            DetectionResult detections = takeResult();
+            if (yolov5TFLiteDetector.redetectLatest(detections) == null) {
+                freeResults.offer(detections);
+                emitter.onComplete();
+                return;
+            }
+            Bitmap bitmap = drawDetections(detections, frame);
+            refreshPotCount(countLabel(detections, "Pot"), countLabel(detections, "Wheat Spike"));
+            freeResults.offer(detections);
+            emitter.onNext(bitmap);
+        }).subscribeOn(Schedulers.computation())
                 .observeOn(AndroidSchedulers.mainThread())
-                // Here is the callback data returned to the main thread to process the sub-thread.
-                .subscribe((Result result) -> {
-                    boxLabelCanvas.setImageBitmap(result.bitmap);
-                    frameSizeTextView.setText(previewHeight + "x" + previewWidth);
-                    inferenceTimeTextView.setText(Long.toString(result.costTime) + "ms");
-                    // Update objectCountsTextView with the latest count
+                .subscribe((Bitmap bitmap) -> {
+                    showOverlay(bitmap);
                     objectCountsTextView.setText(generateCountsText());
                 });
     }
 
-    private String generateCountsText() {
+    // Reuses the sampling map while the preview and camera format stay the same.
+    private YuvInputMapping inputMapping(Matrix modelToImage, CameraFrame frame, int inputWidth, int inputHeight) {
+        YuvInputMapping mapping = inputMapping;
+        if (mapping == null || !mapping.matches(modelToImage, matrixScratch, frame.width, frame.height,
+                frame.yRowStride, frame.uvRowStride, frame.uvPixelStride, inputWidth, inputHeight)) {
+            mapping = new YuvInputMapping(modelToImage, frame.width, frame.height, frame.yRowStride, frame.uvRowStride,
+                    frame.uvPixelStride, inputWidth, inputHeight);
+            inputMapping = mapping;
+        }
+        return mapping;
+    }
+
+    // Main thread: the overlay that is replaced goes back to the pool for a later frame.
+    private void showOverlay(Bitmap bitmap) {
+        boxLabelCanvas.setImageBitmap(bitmap);
+        if (displayedBitmap != null) {
+            bufferPool.releaseBitmap(displayedBitmap);
+        }
+        displayedBitmap = bitmap;
+    }
+
+    private DetectionResult takeResult() {
+        DetectionResult result = freeResults.poll();
+        return result != null ? result : new DetectionResult();
+    }
+
+    private static int countLabel(DetectionResult detections, String label) {
+        int classId = detections.classIdOf(label);
+        return classId < 0 ? 0 : detections.countOf(classId);
+    }
+
+    // Draws the boxes on a transparent preview-sized bitmap, mapping each into a scratch rect
+    private Bitmap drawDetections(DetectionResult detections, FrameGeometry frame) {
+        Bitmap emptyCropSizeBitmap = bufferPool.takeBitmap(frame.previewWidth, frame.previewHeight);
+        Canvas cropCanvas = new Canvas(emptyCropSizeBitmap);
+        RectF location = new RectF();
+        StringBuilder text = new StringBuilder();
+
+        float[] boxes = detections.getBoxes();
+        float[] scores = detections.getScores();
+        for (int i = 0; i < detections.getCount(); i++) {
+            location.set(boxes[i * 4], boxes[i * 4 + 1], boxes[i * 4 + 2], boxes[i * 4 + 3]);
+            frame.modelToPreviewTransform.mapRect(location);
+            cropCanvas.drawRect(location, boxPaint);
+            // label:0.87, without String.format
+            int hundredths = Math.round(scores[i] * 100);
+            text.setLength(0);
+            text.append(detections.getLabelName(i)).append(':').append(hundredths / 100).append('.');
+            if (hundredths % 100 < 10) text.append('0');
+            text.append(hundredths % 100);
+            cropCanvas.drawText(text, 0, text.length(), location.left, location.top, textPaint);
+        }
+        return emptyCropSizeBitmap;
+    }
+
+    // A re-decoded frame only corrects the current pot; it never starts a new one.
+    private synchronized void refreshPotCount(int potCount, int spikeCount) {
+        String currentPotKey = "Pot" + nextPotId;
+        if (potCount > 0 && spikeCount > 0) {
+            spikePerPot.put(currentPotKey, Math.max(spikePerPot.getOrDefault(currentPotKey, 0), spikeCount));
+        }
+    }
+
+    // The inference worker and refreshLatest() count on different threads, so pot bookkeeping is serialized.
+    private synchronized void updatePotCounts(int detectionCount, int potCount, int spikeCount) {
+        // Determine the current pot key
+        String currentPotKey = "Pot" + nextPotId;
+
+        // Process detections
+        if (detectionCount == 0) {
+            detectionBit = true;
+            // If no spikes have been detected, keep the current pot count unchanged.
+            if (spikePerPot.getOrDefault(currentPotKey, 0) == 0) {
+                spikePerPot.put(currentPotKey, -1); // Mark as no spike detected.
+            }
+        } else {
+            if (potCount > 0) {
+                if (detectionBit) {
+                    // Move to the next pot when a new pot is detected
+                    currentPotKey = "Pot" + (++nextPotId);
+                    spikePerPot.put(currentPotKey, 0);
+                    detectionBit = false;
+                    //nextPotId++;
+                    //spikePerPotSet.put("Pot" + nextPotId, new HashSet<>());
+                    //spikePerPot.put("Pot" + nextPotId, 0);
+                    //detectionBit = false;
+                }
+                if (spikeCount> 0) {
+                    //spikePerPotSet.get("Pot" + nextPotId).add(objectCounts.get("Wheat Spike"));
+                    // Dynamically update the maximum spike count for the current pot
+                    spikePerPot.put(currentPotKey, Math.max(spikePerPot.getOrDefault(currentPotKey, 0), spikeCount));
+                }
+            } else if (spikeCount > 0) {
+                // Spikes detected but no pot, log a warning or skip
+                System.out.println("Warning: Spikes detected without a pot. Ignoring spikes.");
+            }
+        }
+    }
+
+    private synchronized String generateCountsText() {
         // Always reset the StringBuilder to ensure it only contains the latest counts
         StringBuilder countsText = new StringBuilder();
 
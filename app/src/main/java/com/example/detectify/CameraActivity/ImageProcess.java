@@ -7,6 +7,8 @@ import android.util.Size;
 
 import androidx.camera.core.ImageProxy;
 
+import com.example.detectify.Utility.CpuTopology;
+
 import org.tensorflow.lite.DataType;
 import org.tensorflow.lite.support.image.ImageProcessor;
 import org.tensorflow.lite.support.image.TensorImage;
@@ -14,12 +16,26 @@ import org.tensorflow.lite.support.image.ops.ResizeOp;
 import org.tensorflow.lite.support.tensorbuffer.TensorBuffer;
 
 import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 
 public class ImageProcess {
 
     private int kMaxChannelValue = 262143;
 
+    private final int parallelBands;
+    private RowBand[] rowBands;
+
+    public ImageProcess() {
+        this(0);
+    }
+
+    // Bands for YUV420ToARGB8888Parallel; 0 or less means one per big core.
+    ImageProcess(int parallelBands) {
+        this.parallelBands = parallelBands;
+    }
+
     /**
      * cameraX planes Data is processed into yuv byte array
      * @param planes
@@ -90,17 +106,104 @@ public class ImageProcess {
             int uvRowStride,
             int uvPixelStride,
             int[] out) {
-        int yp = 0;
-        for (int j = 0; j < height; j++) {
-            int pY = yRowStride * j;
-            int pUV = uvRowStride * (j >> 1);
-
-            for (int i = 0; i < width; i++) {
-                int uv_offset = pUV + (i >> 1) * uvPixelStride;
+        convertRows(yData, uData, vData, width, 0, height, yRowStride, uvRowStride, uvPixelStride, out);
+    }
 
-                out[yp++] = YUV2RGB(0xff & yData[pY + i], 0xff & uData[uv_offset], 0xff & vData[uv_offset]);
+    /**
+     * YUV420 to ARGB8888 on several threads: the rows are split into one band per big core,
+     * the calling thread converts the first band and a shared fixed pool the others. The output
+     * is identical to {@link #YUV420ToARGB8888}. The band tasks are reused, so a call allocates
+     * nothing; calls on the same ImageProcess run one at a time.
+     */
+    public synchronized void YUV420ToARGB8888Parallel(
+            byte[] yData,
+            byte[] uData,
+            byte[] vData,
+            int width,
+            int height,
+            int yRowStride,
+            int uvRowStride,
+            int uvPixelStride,
+            int[] out) {
+        if (rowBands == null) {
+            rowBands = new RowBand[parallelBands > 0 ? parallelBands : CpuTopology.bigCoreCount()];
+            for (int b = 0; b < rowBands.length; b++) {
+                rowBands[b] = new RowBand();
+            }
+        }
+        int bandCount = Math.min(rowBands.length, height);
+        if (bandCount <= 1) {
+            YUV420ToARGB8888(yData, uData, vData, width, height, yRowStride, uvRowStride, uvPixelStride, out);
+            return;
+        }
+        ForkJoinPool pool = CpuTopology.workerPool();
+        for (int b = 0; b < bandCount; b++) {
+            RowBand band = rowBands[b];
+            band.set(yData, uData, vData, width, height * b / bandCount, height * (b + 1) / bandCount,
+                    yRowStride, uvRowStride, uvPixelStride, out);
+            if (b > 0) {
+                band.reinitialize();
+                pool.execute(band);
             }
         }
+        try {
+            rowBands[0].compute();
+        } finally {
+            for (int b = 1; b < bandCount; b++) {
+                rowBands[b].join();
+            }
+            for (int b = 0; b < bandCount; b++) {
+                rowBands[b].clear();
+            }
+        }
+    }
+
+    // Rows [rowFrom, rowTo) of the frame; the first output pixel of row j is width * j.
+    // Table lookups give the same pixels as calling YUV2RGB for each one.
+    private void convertRows(byte[] yData, byte[] uData, byte[] vData, int width, int rowFrom, int rowTo,
+                             int yRowStride, int uvRowStride, int uvPixelStride, int[] out) {
+        YuvToRgbTable.convertRows(yData, uData, vData, width, rowFrom, rowTo, yRowStride, uvRowStride, uvPixelStride, out);
+    }
+
+    // One band of rows of a parallel conversion, reused from call to call.
+    private final class RowBand extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private byte[] yData;
+        private byte[] uData;
+        private byte[] vData;
+        private int[] out;
+        private int width;
+        private int rowFrom;
+        private int rowTo;
+        private int yRowStride;
+        private int uvRowStride;
+        private int uvPixelStride;
+
+        void set(byte[] yData, byte[] uData, byte[] vData, int width, int rowFrom, int rowTo,
+                 int yRowStride, int uvRowStride, int uvPixelStride, int[] out) {
+            this.yData = yData;
+            this.uData = uData;
+            this.vData = vData;
+            this.width = width;
+            this.rowFrom = rowFrom;
+            this.rowTo = rowTo;
+            this.yRowStride = yRowStride;
+            this.uvRowStride = uvRowStride;
+            this.uvPixelStride = uvPixelStride;
+            this.out = out;
+        }
+
+        // Drop the frame arrays so an idle band does not keep them alive.
+        void clear() {
+            yData = uData = vData = null;
+            out = null;
+        }
+
+        @Override
+        protected void compute() {
+            convertRows(yData, uData, vData, width, rowFrom, rowTo, yRowStride, uvRowStride, uvPixelStride, out);
+        }
     }
 
 
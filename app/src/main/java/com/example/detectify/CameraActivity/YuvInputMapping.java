@@ -0,0 +1,109 @@
+package com.example.detectify.CameraActivity;
+
+import android.graphics.Matrix;
+
+import java.util.Arrays;
+
+/**
+ * Precomputed sampling of a YUV_420_888 camera image for every model input pixel. It covers the
+ * rotation to the screen, the crop to the preview and the scale to the model input in one
+ * nearest-neighbour lookup. The rotation is a multiple of 90 degrees, so a pixel's source row
+ * and column each depend on only one model axis, and the plane offsets are kept per model
+ * column and per model row.
+ *
+ * Built once per geometry and shared by every frame with the same preview size, crop region
+ * and plane strides.
+ */
+class YuvInputMapping {
+
+    private final float[] modelToImage = new float[9];
+    private final int imageWidth;
+    private final int imageHeight;
+    private final int yRowStride;
+    private final int uvRowStride;
+    private final int uvPixelStride;
+    private final int modelWidth;
+    private final int modelHeight;
+
+    private final int[] columnY;
+    private final int[] columnUV;
+    private final int[] rowY;
+    private final int[] rowUV;
+
+    YuvInputMapping(Matrix modelToImage, int imageWidth, int imageHeight, int yRowStride, int uvRowStride, int uvPixelStride,
+                    int modelWidth, int modelHeight) {
+        modelToImage.getValues(this.modelToImage);
+        this.imageWidth = imageWidth;
+        this.imageHeight = imageHeight;
+        this.yRowStride = yRowStride;
+        this.uvRowStride = uvRowStride;
+        this.uvPixelStride = uvPixelStride;
+        this.modelWidth = modelWidth;
+        this.modelHeight = modelHeight;
+
+        // image x = m[0] * x + m[1] * y + m[2], image y = m[3] * x + m[4] * y + m[5]
+        float[] m = this.modelToImage;
+        boolean transposed = isZero(m[0]) && isZero(m[4]);
+        if (!transposed && !(isZero(m[1]) && isZero(m[3]))) {
+            throw new IllegalArgumentException("Only rotations by multiples of 90 degrees are supported");
+        }
+        columnY = new int[modelWidth];
+        columnUV = new int[modelWidth];
+        rowY = new int[modelHeight];
+        rowUV = new int[modelHeight];
+        for (int x = 0; x < modelWidth; x++) {
+            float center = x + 0.5f;
+            if (transposed) {
+                int sy = clamp(m[3] * center + m[5], imageHeight);
+                columnY[x] = sy * yRowStride;
+                columnUV[x] = (sy >> 1) * uvRowStride;
+            } else {
+                int sx = clamp(m[0] * center + m[2], imageWidth);
+                columnY[x] = sx;
+                columnUV[x] = (sx >> 1) * uvPixelStride;
+            }
+        }
+        for (int y = 0; y < modelHeight; y++) {
+            float center = y + 0.5f;
+            if (transposed) {
+                int sx = clamp(m[1] * center + m[2], imageWidth);
+                rowY[y] = sx;
+                rowUV[y] = (sx >> 1) * uvPixelStride;
+            } else {
+                int sy = clamp(m[4] * center + m[5], imageHeight);
+                rowY[y] = sy * yRowStride;
+                rowUV[y] = (sy >> 1) * uvRowStride;
+            }
+        }
+    }
+
+    // Rotation matrices carry rounding noise where sin or cos is zero.
+    private static boolean isZero(float value) {
+        return Math.abs(value) < 1e-6f;
+    }
+
+    private static int clamp(float coordinate, int length) {
+        return Math.max(0, Math.min(length - 1, (int) Math.floor(coordinate)));
+    }
+
+    /** True if this mapping was built for the same geometry, so it can be reused. */
+    boolean matches(Matrix modelToImage, float[] scratch, int imageWidth, int imageHeight, int yRowStride, int uvRowStride,
+                    int uvPixelStride, int modelWidth, int modelHeight) {
+        modelToImage.getValues(scratch);
+        return this.imageWidth == imageWidth && this.imageHeight == imageHeight
+                && this.yRowStride == yRowStride && this.uvRowStride == uvRowStride && this.uvPixelStride == uvPixelStride
+                && this.modelWidth == modelWidth && this.modelHeight == modelHeight
+                && Arrays.equals(this.modelToImage, scratch);
+    }
+
+    /** Converts model input row {@code y} from the camera planes. */
+    void readRow(byte[] yPlane, byte[] uPlane, byte[] vPlane, int y, int[] argb) {
+        int pY = rowY[y];
+        int pUV = rowUV[y];
+        for (int x = 0; x < modelWidth; x++) {
+            int uvOffset = pUV + columnUV[x];
+            argb[x] = YuvToRgbTable.argb(0xff & yPlane[pY + columnY[x]],
+                    0xff & uPlane[uvOffset], 0xff & vPlane[uvOffset]);
+        }
+    }
+}
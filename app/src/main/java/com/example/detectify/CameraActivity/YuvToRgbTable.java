@@ -0,0 +1,105 @@
+package com.example.detectify.CameraActivity;
+
+/**
+ * Table-driven form of {@link ImageProcess#YUV2RGB}. The Y, U and V terms of the integer
+ * conversion are looked up from 256-entry tables, and each chroma sample is read once for the
+ * 2x2 block of luma pixels it covers.
+ *
+ * The results are exactly those of {@code YUV2RGB}. It clamps each sum to [0, 2^18 - 1] and
+ * keeps bits 10..17, which is the same as shifting the sum right by 10 and saturating to
+ * [0, 255]; that last step is a lookup too.
+ */
+final class YuvToRgbTable {
+
+    private static final int[] Y_TERM = new int[256];
+    private static final int[] R_V = new int[256];
+    private static final int[] G_V = new int[256];
+    private static final int[] G_U = new int[256];
+    private static final int[] B_U = new int[256];
+
+    // Sums shifted right by 10 lie in [-259, 534]; SATURATE maps them to a channel value.
+    private static final int SATURATE_OFFSET = 1024;
+    private static final int[] SATURATE = new int[2048];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            Y_TERM[i] = 1192 * Math.max(i - 16, 0);
+            R_V[i] = 1634 * (i - 128);
+            G_V[i] = 833 * (i - 128);
+            G_U[i] = 400 * (i - 128);
+            B_U[i] = 2066 * (i - 128);
+        }
+        for (int i = 0; i < SATURATE.length; i++) {
+            SATURATE[i] = Math.max(0, Math.min(255, i - SATURATE_OFFSET));
+        }
+    }
+
+    private YuvToRgbTable() {
+    }
+
+    /** Same as {@code YUV2RGB(y, u, v)} for samples in [0, 255]. */
+    static int argb(int y, int u, int v) {
+        return pixel(Y_TERM[y], R_V[v], G_V[v] + G_U[u], B_U[u]);
+    }
+
+    private static int pixel(int yTerm, int rv, int guv, int bu) {
+        return 0xff000000
+                | SATURATE[((yTerm + rv) >> 10) + SATURATE_OFFSET] << 16
+                | SATURATE[((yTerm - guv) >> 10) + SATURATE_OFFSET] << 8
+                | SATURATE[((yTerm + bu) >> 10) + SATURATE_OFFSET];
+    }
+
+    /**
+     * Converts rows [{@code rowFrom}, {@code rowTo}) of a YUV420 frame into {@code out}, where
+     * row {@code j} starts at {@code width * j}. Rows are taken in the pairs that share a chroma
+     * row; a band starting or ending inside a pair converts that row on its own.
+     */
+    static void convertRows(byte[] yData, byte[] uData, byte[] vData, int width, int rowFrom, int rowTo,
+                            int yRowStride, int uvRowStride, int uvPixelStride, int[] out) {
+        int j = rowFrom;
+        if ((j & 1) == 1 && j < rowTo) {
+            convertRowPair(yData, uData, vData, width, j, false, yRowStride, uvRowStride, uvPixelStride, out);
+            j++;
+        }
+        for (; j + 1 < rowTo; j += 2) {
+            convertRowPair(yData, uData, vData, width, j, true, yRowStride, uvRowStride, uvPixelStride, out);
+        }
+        if (j < rowTo) {
+            convertRowPair(yData, uData, vData, width, j, false, yRowStride, uvRowStride, uvPixelStride, out);
+        }
+    }
+
+    // Row j and, if both, row j + 1, which reads the same chroma row.
+    private static void convertRowPair(byte[] yData, byte[] uData, byte[] vData, int width, int j, boolean both,
+                                       int yRowStride, int uvRowStride, int uvPixelStride, int[] out) {
+        int pY0 = yRowStride * j;
+        int pY1 = pY0 + yRowStride;
+        int pUV = uvRowStride * (j >> 1);
+        int o0 = width * j;
+        int o1 = o0 + width;
+        int evenWidth = width & ~1;
+        for (int i = 0; i < evenWidth; i += 2) {
+            int uvOffset = pUV + (i >> 1) * uvPixelStride;
+            int u = 0xff & uData[uvOffset];
+            int v = 0xff & vData[uvOffset];
+            int rv = R_V[v];
+            int guv = G_V[v] + G_U[u];
+            int bu = B_U[u];
+            out[o0 + i] = pixel(Y_TERM[0xff & yData[pY0 + i]], rv, guv, bu);
+            out[o0 + i + 1] = pixel(Y_TERM[0xff & yData[pY0 + i + 1]], rv, guv, bu);
+            if (both) {
+                out[o1 + i] = pixel(Y_TERM[0xff & yData[pY1 + i]], rv, guv, bu);
+                out[o1 + i + 1] = pixel(Y_TERM[0xff & yData[pY1 + i + 1]], rv, guv, bu);
+            }
+        }
+        if (evenWidth < width) {
+            int uvOffset = pUV + (evenWidth >> 1) * uvPixelStride;
+            int u = 0xff & uData[uvOffset];
+            int v = 0xff & vData[uvOffset];
+            out[o0 + evenWidth] = argb(0xff & yData[pY0 + evenWidth], u, v);
+            if (both) {
+                out[o1 + evenWidth] = argb(0xff & yData[pY1 + evenWidth], u, v);
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.detectify.DashboardFeaturesActivity;
 
 import android.content.ContentValues;
+import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.database.Cursor;
@@ -10,6 +11,7 @@ import android.util.Log;
 import android.view.Surface;
 import android.view.View;
 import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.ImageButton;
 import android.widget.ImageView;
@@ -26,32 +28,55 @@ import androidx.camera.view.PreviewView;
 import com.example.detectify.CameraActivity.CameraProcess;
 import com.example.detectify.CameraActivity.FullScreenAnalyse;
 import com.example.detectify.DatabaseActivity.DatabaseHelper;
+import com.example.detectify.Detector.DetectorConfig;
+import com.example.detectify.Detector.DetectorManager;
+import com.example.detectify.Detector.ModelInfo;
+import com.example.detectify.Detector.ModelRegistry;
 import com.example.detectify.Detector.Yolov5TFLiteDetector;
 import com.example.detectify.R;
 import com.example.detectify.UserActivity.DashboardActivity;
+import com.example.detectify.Utility.CpuTopology;
 import com.google.common.util.concurrent.ListenableFuture;
 
 import android.database.sqlite.SQLiteDatabase;
 
+import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.disposables.Disposable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.TimeZone;
 
 public class DetectActivity extends AppCompatActivity {
     private static final String TAG = "DetectActivity";
+    // Slowest CPU inference a model may take to be picked automatically, about 10 frames per second.
+    private static final long MODEL_LATENCY_BUDGET_MICROS = 100_000;
 
     private PreviewView cameraPreviewMatch;
     private ImageView boxLabelCanvas;
     private Spinner modelSpinner;
     private Spinner delegateSpinner;
+    private Spinner resolutionSpinner;
     private TextView inferenceTimeTextView;
     private TextView frameSizeTextView;
     private TextView objectCountsTextView;
     private ListenableFuture<ProcessCameraProvider> cameraProviderFuture;
     private Yolov5TFLiteDetector yolov5TFLiteDetector;
+    private DetectorManager detectorManager;
+    private Disposable modelLoading;
+    private ModelRegistry modelRegistry;
+    private Disposable modelSelection;
+    // Set until the models are listed and the default one picked; no model is loaded before.
+    private boolean selectingModel = true;
+    // Models that failed to resize; they are loaded at their exported size with the resolution spinner off.
+    private final Set<String> fixedSizeModels = new HashSet<>();
 
     private CameraProcess cameraProcess = new CameraProcess();
 
@@ -82,35 +107,73 @@ public class DetectActivity extends AppCompatActivity {
     }
 
     /**
-     * Initialize model
+     * Initialize model. Loading and warm-up run in the background; the camera analyzer is
+     * (re)started with the new detector once it is ready.
      *
      * @param modelName
      */
     private void initModel(String modelName) {
-        try {
-            this.yolov5TFLiteDetector = new Yolov5TFLiteDetector();
-            this.yolov5TFLiteDetector.setModelFile(modelName);
-
-            // Add delegate based on selection
-            String selectedDelegate = delegateSpinner.getSelectedItem().toString();
-
-            switch (selectedDelegate) {
-                case "GPU":
-                    yolov5TFLiteDetector.addGPUDelegate();
-                    break;
-                case "NNAPI":
-                    yolov5TFLiteDetector.addNNApiDelegate();
-                    break;
-                default:
-                    // CPU delegate is the default
-            }
-            this.yolov5TFLiteDetector.initialModel(this);
-            Log.i("model", "Success loading model: " + this.yolov5TFLiteDetector.getModelFile());
-            Toast.makeText(this, modelName + " model loaded successfully with " + selectedDelegate + " delegate.", Toast.LENGTH_SHORT).show();
-        } catch (Exception e) {
-            Log.e("image", "Load model error: " + e.getMessage(), e);
-            Toast.makeText(this, "Error loading " + modelName + " model", Toast.LENGTH_SHORT).show();
+        if (selectingModel) {
+            // Loading now would race the latency calibration; selectModel() loads the pick.
+            return;
         }
+        final ModelRegistry registry = modelRegistry;
+        final String selectedDelegate = delegateSpinner.getSelectedItem().toString();
+        final int inputSize = Integer.parseInt(resolutionSpinner.getSelectedItem().toString());
+        final boolean fixedSize = fixedSizeModels.contains(modelName);
+        String key = modelName + "/" + selectedDelegate + "/" + (fixedSize ? "exported" : inputSize);
+
+        if (modelLoading != null) {
+            modelLoading.dispose();
+        }
+        modelLoading = detectorManager.obtain(key, () -> {
+                    Yolov5TFLiteDetector detector = new Yolov5TFLiteDetector();
+                    ModelInfo modelInfo = registry != null ? registry.get(modelName) : null;
+                    if (modelInfo != null) {
+                        detector.setModel(modelInfo);
+                    } else {
+                        detector.setModelFile(modelName);
+                    }
+                    if (!fixedSize) {
+                        detector.setInputSize(inputSize);
+                    }
+
+                    // Add delegate based on selection
+                    switch (selectedDelegate) {
+                        case "GPU":
+                            detector.addGPUDelegate();
+                            break;
+                        case "NNAPI":
+                            detector.addNNApiDelegate();
+                            break;
+                        default:
+                            // CPU delegate is the default, with the thread count tuned for this phone.
+                            // The camera feeds one inference worker, so a single interpreter gets
+                            // every thread; on 8-core devices the big cores share the decode.
+                            detector.useTunedCpuThreads();
+                            if (Runtime.getRuntime().availableProcessors() >= 8) {
+                                detector.setDecodeParallelism(CpuTopology.bigCoreCount());
+                            }
+                    }
+                    return detector;
+                })
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(detector -> {
+                    this.yolov5TFLiteDetector = detector;
+                    Log.i("model", "Success loading model: " + detector.getModelFile());
+                    Toast.makeText(this, modelName + " model loaded successfully with " + selectedDelegate + " delegate.", Toast.LENGTH_SHORT).show();
+                    if (!detector.isInputResizable()) {
+                        fixedSizeModels.add(modelName);
+                    }
+                    resolutionSpinner.setEnabled(detector.isInputResizable());
+                    if (detector.getInputSizeError() != null) {
+                        Toast.makeText(this, detector.getInputSizeError(), Toast.LENGTH_LONG).show();
+                    }
+                    updateCameraView();
+                }, e -> {
+                    Log.e("image", "Load model error: " + e.getMessage(), e);
+                    Toast.makeText(this, "Error loading " + modelName + " model", Toast.LENGTH_SHORT).show();
+                });
     }
 
     @Override
@@ -133,6 +196,7 @@ public class DetectActivity extends AppCompatActivity {
         // drop down button
         modelSpinner = findViewById(R.id.model);
         delegateSpinner = findViewById(R.id.delegate);
+        resolutionSpinner = findViewById(R.id.resolution);
 
         // Some views updated in real time
         inferenceTimeTextView = findViewById(R.id.inference_time);
@@ -147,6 +211,8 @@ public class DetectActivity extends AppCompatActivity {
 
         closeButton = findViewById(R.id.closebutton);
 
+        detectorManager = new DetectorManager(this);
+
         dbHelper = new DatabaseHelper(this); // Initialize the database helper
         sessionId = startNewSession(); // Start a new session and get the session ID
 
@@ -161,16 +227,24 @@ public class DetectActivity extends AppCompatActivity {
         detectThresholdIncrementButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                yolov5TFLiteDetector.DETECT_THRESHOLD = Math.min(yolov5TFLiteDetector.DETECT_THRESHOLD + 0.1f, 1f);
-                detectThresholdTextView.setText(String.format("Detect Threshold: %.2f", yolov5TFLiteDetector.DETECT_THRESHOLD));
+                if (yolov5TFLiteDetector == null) return;
+                DetectorConfig config = yolov5TFLiteDetector.updateConfig(c -> c.withDetectThreshold(Math.min(c.getDetectThreshold() + 0.1f, 1f)));
+                detectThresholdTextView.setText(String.format("Detect Threshold: %.2f", config.getDetectThreshold()));
+                if (fullScreenAnalyse != null) {
+                    fullScreenAnalyse.refreshLatest();
+                }
             }
         });
 
         detectThresholdDecrementButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                yolov5TFLiteDetector.DETECT_THRESHOLD = Math.max(yolov5TFLiteDetector.DETECT_THRESHOLD - 0.1f, 0f);
-                detectThresholdTextView.setText(String.format("Detect Threshold: %.2f", yolov5TFLiteDetector.DETECT_THRESHOLD));
+                if (yolov5TFLiteDetector == null) return;
+                DetectorConfig config = yolov5TFLiteDetector.updateConfig(c -> c.withDetectThreshold(Math.max(c.getDetectThreshold() - 0.1f, 0f)));
+                detectThresholdTextView.setText(String.format("Detect Threshold: %.2f", config.getDetectThreshold()));
+                if (fullScreenAnalyse != null) {
+                    fullScreenAnalyse.refreshLatest();
+                }
             }
         });
 
@@ -179,13 +253,25 @@ public class DetectActivity extends AppCompatActivity {
             cameraProcess.requestPermissions(this);
         }
 
-        // Set default model selection to yolov5s-fp16
+        // List the models found in assets rather than a fixed set, and default to the largest
+        // one this phone runs within the latency budget, falling back to yolov5s-fp16. Both read
+        // every model file, so they run in the background; latencies are measured once per
+        // device and then read from preferences.
         String defaultModel = "yolov5s-fp16";
-        int defaultModelPosition = 0; // Position of yolov5s-fp16 in the spinner array
-        modelSpinner.setSelection(defaultModelPosition);
-
-        // Initialize model
-        initModel(defaultModel);
+        int inputSize = Integer.parseInt(resolutionSpinner.getSelectedItem().toString());
+        Context appContext = getApplicationContext();
+        modelSelection = Observable.fromCallable(() -> ModelRegistry.scan(appContext))
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .doOnNext(this::showModels)
+                .observeOn(Schedulers.io())
+                .map(registry -> registry.selectByLatency(appContext, inputSize, MODEL_LATENCY_BUDGET_MICROS).getName())
+                .onErrorReturn(e -> {
+                    Log.w(TAG, "Model selection failed, using " + defaultModel + ": " + e.getMessage());
+                    return defaultModel;
+                })
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(this::selectModel);
 
         // Set up model spinner listener
         modelSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
@@ -194,7 +280,6 @@ public class DetectActivity extends AppCompatActivity {
                 String model = (String) adapterView.getItemAtPosition(i);
                 Toast.makeText(DetectActivity.this, "Loading model: " + model, Toast.LENGTH_LONG).show();
                 initModel(model);
-                updateCameraView();
             }
 
             @Override
@@ -211,7 +296,22 @@ public class DetectActivity extends AppCompatActivity {
                 Toast.makeText(DetectActivity.this, "Delegate switched to: " + delegate, Toast.LENGTH_LONG).show();
                 // Reinitialize the model with the new delegate
                 initModel((String) modelSpinner.getSelectedItem());
-                updateCameraView();
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> adapterView) {
+                // Do nothing
+            }
+        });
+
+        // Set up input resolution spinner listener
+        resolutionSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> adapterView, View view, int i, long l) {
+                String resolution = (String) adapterView.getItemAtPosition(i);
+                Toast.makeText(DetectActivity.this, "Input resolution switched to: " + resolution, Toast.LENGTH_LONG).show();
+                // Reinitialize the model with the new input size
+                initModel((String) modelSpinner.getSelectedItem());
             }
 
             @Override
@@ -237,9 +337,59 @@ public class DetectActivity extends AppCompatActivity {
         });
     }
 
+    private void showModels(ModelRegistry registry) {
+        modelRegistry = registry;
+        if (!registry.getNames().isEmpty()) {
+            ArrayAdapter<String> modelAdapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, registry.getNames());
+            modelAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+            modelSpinner.setAdapter(modelAdapter);
+        }
+    }
+
+    // Show the model in the spinner and load it
+    private void selectModel(String modelName) {
+        selectingModel = false;
+        for (int i = 0; i < modelSpinner.getCount(); i++) {
+            if (modelName.equals(modelSpinner.getItemAtPosition(i))) {
+                modelSpinner.setSelection(i);
+                break;
+            }
+        }
+        initModel(modelName);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // Pooled frame buffers are only a cache; give them back when the system asks.
+        if (fullScreenAnalyse != null) {
+            fullScreenAnalyse.trimMemory();
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        if (modelSelection != null) {
+            modelSelection.dispose();
+        }
+        if (modelLoading != null) {
+            modelLoading.dispose();
+        }
+        if (fullScreenAnalyse != null) {
+            fullScreenAnalyse.shutdown();
+        }
+        cameraProcess.shutdown();
+        detectorManager.close();
+        super.onDestroy();
+    }
+
     //Listen to the view change button
     private void updateCameraView() {
         int rotation = getScreenOrientation();
+        // The previous analyzer's inference worker is no longer fed once the camera is rebound.
+        if (fullScreenAnalyse != null) {
+            fullScreenAnalyse.shutdown();
+        }
         // Enter full screen mode
         fullScreenAnalyse = new FullScreenAnalyse(
                 DetectActivity.this,
@@ -0,0 +1,71 @@
+package com.example.detectify.Detector;
+
+import java.util.Arrays;
+
+/**
+ * Column-oriented store for the rows of the YOLOv5 output that pass the confidence threshold.
+ * The arrays are allocated once per detector and reused for every frame.
+ */
+class CandidateBuffer {
+
+    float[] left;
+    float[] top;
+    float[] right;
+    float[] bottom;
+    float[] confidence;
+    float[] labelScore;
+    int[] labelId;
+    /** Row of the output tensor the candidate was decoded from, unique within a frame; NMS breaks ties on it. */
+    int[] row;
+    int count;
+
+    CandidateBuffer(int capacity) {
+        left = new float[capacity];
+        top = new float[capacity];
+        right = new float[capacity];
+        bottom = new float[capacity];
+        confidence = new float[capacity];
+        labelScore = new float[capacity];
+        labelId = new int[capacity];
+        row = new int[capacity];
+    }
+
+    int capacity() {
+        return row.length;
+    }
+
+    /** Grows the columns, keeping their contents, so at least {@code capacity} candidates fit. */
+    void ensureCapacity(int capacity) {
+        if (capacity <= row.length) return;
+        int newCapacity = Math.max(capacity, row.length * 2);
+        left = Arrays.copyOf(left, newCapacity);
+        top = Arrays.copyOf(top, newCapacity);
+        right = Arrays.copyOf(right, newCapacity);
+        bottom = Arrays.copyOf(bottom, newCapacity);
+        confidence = Arrays.copyOf(confidence, newCapacity);
+        labelScore = Arrays.copyOf(labelScore, newCapacity);
+        labelId = Arrays.copyOf(labelId, newCapacity);
+        row = Arrays.copyOf(row, newCapacity);
+    }
+
+    void clear() {
+        count = 0;
+    }
+
+    void add(float left, float top, float right, float bottom,
+             float confidence, float labelScore, int labelId, int row) {
+        set(count++, left, top, right, bottom, confidence, labelScore, labelId, row);
+    }
+
+    void set(int i, float left, float top, float right, float bottom,
+             float confidence, float labelScore, int labelId, int row) {
+        this.left[i] = left;
+        this.top[i] = top;
+        this.right[i] = right;
+        this.bottom[i] = bottom;
+        this.confidence[i] = confidence;
+        this.labelScore[i] = labelScore;
+        this.labelId[i] = labelId;
+        this.row[i] = row;
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.detectify.Detector;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.util.Log;
+
+import com.example.detectify.Utility.CpuTopology;
+
+import org.tensorflow.lite.Interpreter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds the fastest CPU configuration for a model on this phone. Each candidate thread count is
+ * timed with XNNPACK on and off on a synthetic input, and the winner is stored in
+ * SharedPreferences per model and input size, so calibration runs once per device.
+ *
+ * Thread counts beyond the big cores are often slower on big.LITTLE phones, which is why the
+ * candidates are built around {@link CpuTopology#bigCoreCount()} instead of always using every core.
+ *
+ * Only one calibration runs at a time in the process, so two models timed at once do not skew
+ * each other's profiles.
+ */
+public class CpuThreadTuner {
+    private static final String TAG = "CpuThreadTuner";
+    private static final String PREFS_NAME = "cpu_thread_tuner";
+    private static final String KEY_FINGERPRINT = "fingerprint";
+
+    private static final int WARM_UP_RUNS = 1;
+    private static final int TIMED_RUNS = 3;
+
+    private static final Object CALIBRATION_LOCK = new Object();
+
+    /** A tuned CPU configuration and the median latency it was measured at. */
+    public static class Profile {
+        public final int numThreads;
+        public final boolean useXnnpack;
+        public final long latencyMicros;
+
+        Profile(int numThreads, boolean useXnnpack, long latencyMicros) {
+            this.numThreads = numThreads;
+            this.useXnnpack = useXnnpack;
+            this.latencyMicros = latencyMicros;
+        }
+
+        @Override
+        public String toString() {
+            return numThreads + " threads, XNNPACK " + (useXnnpack ? "on" : "off") + ", " + latencyMicros + " us";
+        }
+    }
+
+    private final SharedPreferences preferences;
+
+    public CpuThreadTuner(Context context) {
+        preferences = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        // Profiles measured on an older system image may no longer be the fastest.
+        if (!Build.FINGERPRINT.equals(preferences.getString(KEY_FINGERPRINT, null))) {
+            preferences.edit().clear().putString(KEY_FINGERPRINT, Build.FINGERPRINT).apply();
+        }
+    }
+
+    /** Profile key of a model file run at the given input size. */
+    public static String keyFor(String modelFile, int inputWidth, int inputHeight) {
+        return modelFile + "@" + inputWidth + "x" + inputHeight;
+    }
+
+    /** The stored profile for {@code modelKey}, or null if it has not been calibrated yet. */
+    public Profile load(String modelKey) {
+        int threads = preferences.getInt(modelKey + ".threads", 0);
+        if (threads <= 0) return null;
+        return new Profile(threads, preferences.getBoolean(modelKey + ".xnnpack", true),
+                preferences.getLong(modelKey + ".latency", 0));
+    }
+
+    /**
+     * Returns the stored profile, or calibrates {@code model} at the given input size and
+     * stores the result. Calibration takes several seconds, so call it off the UI thread.
+     */
+    public Profile obtain(String modelKey, ByteBuffer model, int inputWidth, int inputHeight) {
+        Profile profile = load(modelKey);
+        if (profile != null) {
+            return profile;
+        }
+        synchronized (CALIBRATION_LOCK) {
+            // Another caller may have calibrated the same model while this one waited.
+            profile = load(modelKey);
+            if (profile == null) {
+                profile = calibrate(model, inputWidth, inputHeight);
+                preferences.edit()
+                        .putInt(modelKey + ".threads", profile.numThreads)
+                        .putBoolean(modelKey + ".xnnpack", profile.useXnnpack)
+                        .putLong(modelKey + ".latency", profile.latencyMicros)
+                        .apply();
+                Log.i(TAG, "Calibrated " + modelKey + ": " + profile);
+            }
+        }
+        return profile;
+    }
+
+    /** Times every candidate configuration and returns the fastest. */
+    public Profile calibrate(ByteBuffer model, int inputWidth, int inputHeight) {
+        synchronized (CALIBRATION_LOCK) {
+            return calibrateLocked(model, inputWidth, inputHeight);
+        }
+    }
+
+    private Profile calibrateLocked(ByteBuffer model, int inputWidth, int inputHeight) {
+        Profile best = null;
+        for (int threads : candidateThreadCounts()) {
+            for (boolean xnnpack : new boolean[]{true, false}) {
+                long latency;
+                try {
+                    latency = measure(model, inputWidth, inputHeight, threads, xnnpack);
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Skipping " + threads + " threads, XNNPACK " + xnnpack + ": " + e.getMessage());
+                    continue;
+                }
+                Log.d(TAG, threads + " threads, XNNPACK " + xnnpack + ": " + latency + " us");
+                if (best == null || latency < best.latencyMicros) {
+                    best = new Profile(threads, xnnpack, latency);
+                }
+            }
+        }
+        if (best == null) {
+            throw new IllegalStateException("No CPU configuration could run the model");
+        }
+        return best;
+    }
+
+    /** 1, 2 and 4 threads, the big cores and every core, limited to the cores present. */
+    static int[] candidateThreadCounts() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<Integer> counts = new ArrayList<>();
+        for (int threads : new int[]{1, 2, 4, CpuTopology.bigCoreCount(), cores}) {
+            if (threads <= cores && !counts.contains(threads)) counts.add(threads);
+        }
+        int[] result = new int[counts.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = counts.get(i);
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static long measure(ByteBuffer model, int inputWidth, int inputHeight, int threads, boolean xnnpack) {
+        Interpreter.Options options = new Interpreter.Options();
+        options.setNumThreads(threads);
+        options.setUseXNNPACK(xnnpack);
+        Interpreter interpreter = new Interpreter(model, options);
+        try {
+            int[] inputShape = interpreter.getInputTensor(0).shape();
+            if (inputShape[1] != inputHeight || inputShape[2] != inputWidth) {
+                interpreter.resizeInput(0, new int[]{1, inputHeight, inputWidth, 3});
+                interpreter.allocateTensors();
+            }
+            // Latency does not depend on the pixel values, so a blank frame is enough.
+            ByteBuffer input = ByteBuffer.allocateDirect(interpreter.getInputTensor(0).numBytes()).order(ByteOrder.nativeOrder());
+            ByteBuffer output = ByteBuffer.allocateDirect(interpreter.getOutputTensor(0).numBytes()).order(ByteOrder.nativeOrder());
+            for (int i = 0; i < WARM_UP_RUNS; i++) {
+                input.rewind();
+                output.rewind();
+                interpreter.run(input, output);
+            }
+            long[] times = new long[TIMED_RUNS];
+            for (int i = 0; i < TIMED_RUNS; i++) {
+                input.rewind();
+                output.rewind();
+                long start = System.nanoTime();
+                interpreter.run(input, output);
+                times[i] = (System.nanoTime() - start) / 1000;
+            }
+            Arrays.sort(times);
+            return times[TIMED_RUNS / 2];
+        } finally {
+            interpreter.close();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.detectify.Detector;
+
+import android.graphics.RectF;
+
+import com.example.detectify.Utility.Recognition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Detections of one frame as parallel primitive arrays: box {@code i} is
+ * {@code boxes[4i..4i+3]} as left, top, right, bottom in model input coordinates, with its
+ * {@code scores[i]}, {@code labelScores[i]} and {@code classIds[i]}. The arrays only grow, so
+ * one result can be handed to {@code detect} for every frame without allocating per detection.
+ *
+ * {@link #toRecognitions()} builds the older {@link Recognition} list when a caller needs it.
+ */
+public final class DetectionResult {
+
+    private float[] boxes;
+    private float[] scores;
+    private float[] labelScores;
+    private int[] classIds;
+    private int count;
+    private List<String> labels;
+
+    public DetectionResult() {
+        this(16);
+    }
+
+    public DetectionResult(int capacity) {
+        capacity = Math.max(1, capacity);
+        boxes = new float[capacity * 4];
+        scores = new float[capacity];
+        labelScores = new float[capacity];
+        classIds = new int[capacity];
+    }
+
+    /** Copies the detections {@code result[0..resultCount)} of {@code candidates}. */
+    void fill(CandidateBuffer candidates, int[] result, int resultCount, List<String> labels) {
+        ensureCapacity(resultCount);
+        for (int k = 0; k < resultCount; k++) {
+            int i = result[k];
+            boxes[k * 4] = candidates.left[i];
+            boxes[k * 4 + 1] = candidates.top[i];
+            boxes[k * 4 + 2] = candidates.right[i];
+            boxes[k * 4 + 3] = candidates.bottom[i];
+            scores[k] = candidates.confidence[i];
+            labelScores[k] = candidates.labelScore[i];
+            classIds[k] = candidates.labelId[i];
+        }
+        this.count = resultCount;
+        this.labels = labels;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= scores.length) return;
+        int grown = Math.max(capacity, scores.length * 2);
+        boxes = Arrays.copyOf(boxes, grown * 4);
+        scores = Arrays.copyOf(scores, grown);
+        labelScores = Arrays.copyOf(labelScores, grown);
+        classIds = Arrays.copyOf(classIds, grown);
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /** Left, top, right, bottom of every detection, four values each; only the first {@code 4 * getCount()} are valid. */
+    public float[] getBoxes() {
+        return boxes;
+    }
+
+    public float[] getScores() {
+        return scores;
+    }
+
+    public float[] getLabelScores() {
+        return labelScores;
+    }
+
+    public int[] getClassIds() {
+        return classIds;
+    }
+
+    public String getLabelName(int index) {
+        return labels.get(classIds[index]);
+    }
+
+    /** Class id of {@code label} in the model's labels, or -1 if the model has no such label. */
+    public int classIdOf(String label) {
+        return labels == null ? -1 : labels.indexOf(label);
+    }
+
+    /** Number of detections of class {@code classId}. */
+    public int countOf(int classId) {
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            if (classIds[i] == classId) n++;
+        }
+        return n;
+    }
+
+    /** The detections as {@link Recognition} objects, for callers written against the older API. */
+    public ArrayList<Recognition> toRecognitions() {
+        ArrayList<Recognition> recognitions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            recognitions.add(new Recognition(classIds[i], getLabelName(i), labelScores[i], scores[i],
+                    new RectF(boxes[i * 4], boxes[i * 4 + 1], boxes[i * 4 + 2], boxes[i * 4 + 3])));
+        }
+        return recognitions;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.detectify.Detector;
+
+/**
+ * Immutable snapshot of the per-frame detection settings. The detector publishes the current
+ * snapshot through one atomic reference and every frame reads it once, so a frame never mixes
+ * old and new values and settings change live without locks or rebuilding interpreters.
+ *
+ * Change settings with the {@code with...} methods, which return a new snapshot.
+ */
+public final class DetectorConfig {
+
+    public static final DetectorConfig DEFAULT = new DetectorConfig(0.50f, 0.50f, 0.70f, 0, ~0, SuppressionMode.AUTO);
+
+    private final float detectThreshold;
+    private final float iouThreshold;
+    private final float classDuplicatedThreshold;
+    private final int maxCandidates;
+    private final int headMask;
+    private final SuppressionMode suppressionMode;
+
+    private DetectorConfig(float detectThreshold, float iouThreshold, float classDuplicatedThreshold,
+                           int maxCandidates, int headMask, SuppressionMode suppressionMode) {
+        this.detectThreshold = detectThreshold;
+        this.iouThreshold = iouThreshold;
+        this.classDuplicatedThreshold = classDuplicatedThreshold;
+        this.maxCandidates = maxCandidates;
+        this.headMask = headMask;
+        this.suppressionMode = suppressionMode;
+    }
+
+    /** Minimum objectness confidence for a row to become a candidate. */
+    public float getDetectThreshold() {
+        return detectThreshold;
+    }
+
+    /** IoU above which a box suppresses a weaker box of the same class. */
+    public float getIouThreshold() {
+        return iouThreshold;
+    }
+
+    /** IoU above which a box suppresses a weaker box of any class. */
+    public float getClassDuplicatedThreshold() {
+        return classDuplicatedThreshold;
+    }
+
+    /** Most confident rows passed to NMS; 0 keeps every row above the threshold. */
+    public int getMaxCandidates() {
+        return maxCandidates;
+    }
+
+    /** Bit {@code h} enables the detection head of stride {@code Yolov5TFLiteDetector.getHeadStrides()[h]}. */
+    public int getHeadMask() {
+        return headMask;
+    }
+
+    public SuppressionMode getSuppressionMode() {
+        return suppressionMode;
+    }
+
+    public DetectorConfig withDetectThreshold(float detectThreshold) {
+        return new DetectorConfig(detectThreshold, iouThreshold, classDuplicatedThreshold, maxCandidates, headMask, suppressionMode);
+    }
+
+    public DetectorConfig withIouThreshold(float iouThreshold) {
+        return new DetectorConfig(detectThreshold, iouThreshold, classDuplicatedThreshold, maxCandidates, headMask, suppressionMode);
+    }
+
+    public DetectorConfig withClassDuplicatedThreshold(float classDuplicatedThreshold) {
+        return new DetectorConfig(detectThreshold, iouThreshold, classDuplicatedThreshold, maxCandidates, headMask, suppressionMode);
+    }
+
+    public DetectorConfig withMaxCandidates(int maxCandidates) {
+        return new DetectorConfig(detectThreshold, iouThreshold, classDuplicatedThreshold, maxCandidates, headMask, suppressionMode);
+    }
+
+    public DetectorConfig withHeadMask(int headMask) {
+        return new DetectorConfig(detectThreshold, iouThreshold, classDuplicatedThreshold, maxCandidates, headMask, suppressionMode);
+    }
+
+    public DetectorConfig withSuppressionMode(SuppressionMode suppressionMode) {
+        return new DetectorConfig(detectThreshold, iouThreshold, classDuplicatedThreshold, maxCandidates, headMask, suppressionMode);
+    }
+
+    @Override
+    public String toString() {
+        return "DetectorConfig{detect=" + detectThreshold + ", iou=" + iouThreshold
+                + ", classDuplicated=" + classDuplicatedThreshold + ", maxCandidates=" + maxCandidates
+                + ", headMask=" + Integer.toBinaryString(headMask) + ", suppression=" + suppressionMode + "}";
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.detectify.Detector;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+/**
+ * Owns the loaded detectors of a detection session.
+ *
+ * Detectors are cached by a key describing model and configuration, so switching back to a
+ * recent choice is instant. Loading and warm-up run on a background thread, and detectors
+ * pushed out of the cache are closed so their interpreters and delegates free native memory.
+ */
+public class DetectorManager {
+    private static final String TAG = "DetectorManager";
+
+    // The current detector plus the previous one, for quick switching back and forth.
+    private static final int MAX_CACHED = 2;
+
+    /** Creates a configured, not yet loaded detector. */
+    public interface Factory {
+        Yolov5TFLiteDetector create();
+    }
+
+    private final Context context;
+    private final LinkedHashMap<String, Yolov5TFLiteDetector> cache = new LinkedHashMap<>(4, 0.75f, true);
+    private boolean closed = false;
+
+    public DetectorManager(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * Emits the detector for {@code key}, loading and warming it up on an I/O thread if it is not cached.
+     */
+    public Observable<Yolov5TFLiteDetector> obtain(String key, Factory factory) {
+        return Observable.fromCallable(() -> getOrLoad(key, factory))
+                .subscribeOn(Schedulers.io());
+    }
+
+    private Yolov5TFLiteDetector getOrLoad(String key, Factory factory) throws Exception {
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("DetectorManager is closed");
+            }
+            Yolov5TFLiteDetector cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        Yolov5TFLiteDetector detector = factory.create();
+        detector.loadModel(context);
+        detector.warmUp();
+        Log.i(TAG, "Loaded " + key + " in " + (System.currentTimeMillis() - start) + "ms");
+
+        List<Yolov5TFLiteDetector> evicted = new ArrayList<>();
+        synchronized (this) {
+            Yolov5TFLiteDetector raced = cache.get(key);
+            if (closed || raced != null) {
+                evicted.add(detector);
+                detector = raced;
+            } else {
+                cache.put(key, detector);
+                Iterator<Map.Entry<String, Yolov5TFLiteDetector>> it = cache.entrySet().iterator();
+                while (cache.size() > MAX_CACHED && it.hasNext()) {
+                    Map.Entry<String, Yolov5TFLiteDetector> eldest = it.next();
+                    if (eldest.getValue() != detector) {
+                        evicted.add(eldest.getValue());
+                        it.remove();
+                    }
+                }
+            }
+        }
+        // Closing waits for in-flight frames, so it happens outside the lock.
+        for (Yolov5TFLiteDetector old : evicted) {
+            old.close();
+        }
+        if (detector == null) {
+            throw new IllegalStateException("DetectorManager is closed");
+        }
+        return detector;
+    }
+
+    /** Closes every cached detector in the background. */
+    public void close() {
+        final List<Yolov5TFLiteDetector> detectors;
+        synchronized (this) {
+            closed = true;
+            detectors = new ArrayList<>(cache.values());
+            cache.clear();
+        }
+        Schedulers.io().scheduleDirect(() -> {
+            for (Yolov5TFLiteDetector detector : detectors) {
+                detector.close();
+            }
+        });
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.detectify.Detector;
+
+import android.graphics.Bitmap;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * Writes RGB pixels straight into one reusable, native-ordered direct buffer in the NHWC layout
+ * the interpreter reads, instead of going through {@code TensorImage} and {@code ImageProcessor}.
+ *
+ * The arithmetic repeats what {@code ResizeOp(BILINEAR)}, {@code NormalizeOp(0, 255)} and, for
+ * uint8 models, {@code QuantizeOp} + {@code CastOp(UINT8)} do, so the tensor is identical.
+ */
+class DirectInputWriter {
+
+    // YOLOv5 letterbox gray, used where a tile runs past the edge of the image.
+    private static final int PADDING_PIXEL = 0xff727272;
+
+    private final int width;
+    private final int height;
+    private final boolean quantized;
+    // QuantizeOp(zeroPoint, scale) is NormalizeOp(-zeroPoint * scale, scale).
+    private final float quantizeMean;
+    private final float quantizeStddev;
+
+    private final ByteBuffer buffer;
+    private final FloatBuffer floatView;
+    private final int[] pixels;
+    private final float[] floatRow;
+    private final byte[] byteRow;
+
+    DirectInputWriter(int width, int height, boolean quantized, float zeroPoint, float scale) {
+        this.width = width;
+        this.height = height;
+        this.quantized = quantized;
+        this.quantizeMean = -zeroPoint * scale;
+        this.quantizeStddev = scale;
+        int values = width * height * 3;
+        buffer = ByteBuffer.allocateDirect(quantized ? values : values * 4).order(ByteOrder.nativeOrder());
+        floatView = quantized ? null : buffer.asFloatBuffer();
+        pixels = new int[width * height];
+        floatRow = quantized ? null : new float[width * 3];
+        byteRow = quantized ? new byte[width * 3] : null;
+    }
+
+    ByteBuffer getBuffer() {
+        buffer.rewind();
+        return buffer;
+    }
+
+    /** Scales {@code bitmap} to the model input if needed and writes it into the buffer. */
+    ByteBuffer write(Bitmap bitmap) {
+        loadPixels(bitmap);
+        return writePixels(pixels, 0, width);
+    }
+
+    /**
+     * Scales {@code bitmap} like {@link #write} but writes it at the position of {@code target},
+     * which is advanced past the image. Used to pack several images into one batched tensor.
+     */
+    void writeTo(Bitmap bitmap, ByteBuffer target) {
+        loadPixels(bitmap);
+        if (quantized) {
+            putBytes(pixels, 0, width, target);
+        } else {
+            putFloats(pixels, 0, width, target.asFloatBuffer());
+            target.position(target.position() + width * height * 3 * 4);
+        }
+    }
+
+    private void loadPixels(Bitmap bitmap) {
+        Bitmap source = bitmap;
+        if (bitmap.getWidth() != width || bitmap.getHeight() != height) {
+            // Same call ResizeOp makes, so the resampled pixels match.
+            source = Bitmap.createScaledBitmap(bitmap, width, height, true);
+        }
+        source.getPixels(pixels, 0, width, 0, 0, width, height);
+        if (source != bitmap) {
+            source.recycle();
+        }
+    }
+
+    /**
+     * Writes the input-sized region of {@code bitmap} whose top-left corner is ({@code x}, {@code y})
+     * without scaling. Parts of the region outside the bitmap are padded.
+     */
+    ByteBuffer writeRegion(Bitmap bitmap, int x, int y) {
+        int regionWidth = Math.min(width, bitmap.getWidth() - x);
+        int regionHeight = Math.min(height, bitmap.getHeight() - y);
+        if (regionWidth < width || regionHeight < height) {
+            Arrays.fill(pixels, PADDING_PIXEL);
+        }
+        bitmap.getPixels(pixels, 0, width, x, y, regionWidth, regionHeight);
+        return writePixels(pixels, 0, width);
+    }
+
+    /** Writes a {@code width x height} block of ARGB pixels starting at {@code offset}. */
+    ByteBuffer writePixels(int[] argb, int offset, int stride) {
+        buffer.rewind();
+        if (quantized) {
+            putBytes(argb, offset, stride, buffer);
+        } else {
+            floatView.rewind();
+            putFloats(argb, offset, stride, floatView);
+        }
+        buffer.rewind();
+        return buffer;
+    }
+
+    /** Writes the input row by row as {@code source} produces it, without an intermediate image. */
+    ByteBuffer write(PixelRowSource source) {
+        buffer.rewind();
+        if (!quantized) {
+            floatView.rewind();
+        }
+        for (int y = 0; y < height; y++) {
+            source.readRow(y, pixels);
+            if (quantized) {
+                putByteRow(pixels, 0, buffer);
+            } else {
+                putFloatRow(pixels, 0, floatView);
+            }
+        }
+        buffer.rewind();
+        return buffer;
+    }
+
+    private void putBytes(int[] argb, int offset, int stride, ByteBuffer target) {
+        for (int y = 0; y < height; y++) {
+            putByteRow(argb, offset + y * stride, target);
+        }
+    }
+
+    private void putFloats(int[] argb, int offset, int stride, FloatBuffer target) {
+        for (int y = 0; y < height; y++) {
+            putFloatRow(argb, offset + y * stride, target);
+        }
+    }
+
+    private void putByteRow(int[] argb, int p, ByteBuffer target) {
+        for (int x = 0, j = 0; x < width; x++) {
+            int pixel = argb[p + x];
+            byteRow[j++] = quantize((pixel >> 16) & 0xff);
+            byteRow[j++] = quantize((pixel >> 8) & 0xff);
+            byteRow[j++] = quantize(pixel & 0xff);
+        }
+        target.put(byteRow);
+    }
+
+    private void putFloatRow(int[] argb, int p, FloatBuffer target) {
+        for (int x = 0, j = 0; x < width; x++) {
+            int pixel = argb[p + x];
+            floatRow[j++] = normalize((pixel >> 16) & 0xff);
+            floatRow[j++] = normalize((pixel >> 8) & 0xff);
+            floatRow[j++] = normalize(pixel & 0xff);
+        }
+        target.put(floatRow);
+    }
+
+    private static float normalize(int channel) {
+        return (channel - 0f) / 255f;
+    }
+
+    private byte quantize(int channel) {
+        float value = (normalize(channel) - quantizeMean) / quantizeStddev;
+        return (byte) (int) Math.max(Math.min(value, 255.0), 0.0);
+    }
+}
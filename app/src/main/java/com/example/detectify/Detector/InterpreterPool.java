@@ -0,0 +1,179 @@
+package com.example.detectify.Detector;
+
+import org.tensorflow.lite.Delegate;
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.support.image.ImageProcessor;
+import org.tensorflow.lite.support.image.TensorImage;
+import org.tensorflow.lite.support.tensorbuffer.TensorBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Fixed set of interpreters created from one memory-mapped model. Each {@link Slot} owns its
+ * interpreter, delegates and every buffer {@code detect()} writes to, so a slot that has been
+ * checked out can run on any thread while other slots run on others.
+ *
+ * Once the pool is closed no slot is handed out any more: {@link #acquire()} returns null right
+ * away, also to callers that were already waiting, so nothing blocks on a closed model.
+ */
+public class InterpreterPool {
+
+    /** One interpreter together with its reusable input/output and post-processing buffers. */
+    public static class Slot {
+        Interpreter interpreter;
+        final List<Delegate> delegates = new ArrayList<>();
+
+        TensorImage inputImage;
+        TensorBuffer outputBuffer;
+        ImageProcessor imageProcessor;
+        DirectInputWriter inputWriter;
+        float[] outputArray;
+        byte[] quantizedOutputArray;
+        CandidateBuffer candidates;
+        YoloOutputDecoder decoder;
+        // Splits the decode across threads when decode parallelism is enabled, otherwise null.
+        ParallelDecoder parallelDecoder;
+        NonMaxSuppression nonMaxSuppression;
+        // Set instead of the decoder and NMS for models that run NMS in the graph.
+        PostProcessedOutputs postProcessed;
+        // Indices into candidates of the detections kept for the last frame.
+        int[] result;
+
+        // Batch dimension the interpreter is currently sized for, and the batched tensors.
+        int batchSize = 1;
+        ByteBuffer batchInput;
+        ByteBuffer batchOutput;
+
+        void close() {
+            if (interpreter != null) {
+                interpreter.close();
+                interpreter = null;
+            }
+            for (Delegate delegate : delegates) {
+                delegate.close();
+            }
+            delegates.clear();
+        }
+    }
+
+    private final List<Slot> slots;
+    private final ArrayDeque<Slot> idle;
+    private boolean closed;
+
+    InterpreterPool(List<Slot> slots) {
+        this.slots = Collections.unmodifiableList(new ArrayList<>(slots));
+        this.idle = new ArrayDeque<>(slots);
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    List<Slot> slots() {
+        return slots;
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Checks out a slot, waiting until one is returned if all are busy. Returns null once the
+     * pool is closed.
+     */
+    public synchronized Slot acquire() {
+        boolean interrupted = false;
+        try {
+            while (!closed && idle.isEmpty()) {
+                interrupted |= await();
+            }
+            return closed ? null : idle.pollFirst();
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /** Checks out a slot, or returns null right away if all are busy or the pool is closed. */
+    public synchronized Slot tryAcquire() {
+        return closed ? null : idle.pollFirst();
+    }
+
+    public synchronized void release(Slot slot) {
+        idle.addLast(slot);
+        notifyAll();
+    }
+
+    /**
+     * Waits for every slot, so their interpreters can be resized safely. Returns null, holding
+     * no slot, if the pool is closed meanwhile.
+     */
+    synchronized List<Slot> acquireAll() {
+        List<Slot> all = new ArrayList<>(slots.size());
+        boolean interrupted = false;
+        try {
+            while (all.size() < slots.size()) {
+                if (closed) {
+                    releaseAll(all);
+                    return null;
+                }
+                if (idle.isEmpty()) {
+                    interrupted |= await();
+                } else {
+                    all.add(idle.pollFirst());
+                }
+            }
+            return all;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    synchronized void releaseAll(List<Slot> all) {
+        for (Slot slot : all) {
+            release(slot);
+        }
+    }
+
+    /**
+     * Closes the pool, so no slot is handed out from now on, and waits until the slots in use
+     * are returned. Returns every slot for the caller to close; a second call returns none.
+     */
+    synchronized List<Slot> close() {
+        if (closed) {
+            return Collections.emptyList();
+        }
+        closed = true;
+        notifyAll();
+        boolean interrupted = false;
+        try {
+            while (idle.size() < slots.size()) {
+                interrupted |= await();
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<Slot> all = new ArrayList<>(idle);
+        idle.clear();
+        return all;
+    }
+
+    // Waits for a release or close. An interrupt is reported back so the caller can restore it.
+    private boolean await() {
+        try {
+            wait();
+            return false;
+        } catch (InterruptedException e) {
+            return true;
+        }
+    }
+}
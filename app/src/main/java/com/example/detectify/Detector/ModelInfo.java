@@ -0,0 +1,129 @@
+package com.example.detectify.Detector;
+
+import android.content.Context;
+
+import org.tensorflow.lite.schema.TensorType;
+import org.tensorflow.lite.support.common.FileUtil;
+import org.tensorflow.lite.support.metadata.MetadataExtractor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Shapes, types, quantization and labels of a YOLOv5 TFLite model, read from the model file
+ * itself through {@link MetadataExtractor} rather than hard-coded per model.
+ */
+public class ModelInfo {
+    /** Used when the model does not carry its own label file. */
+    public static final String DEFAULT_LABEL_FILE = "label.txt";
+
+    private final String fileName;
+    private final long fileSize;
+    private final int inputWidth;
+    private final int inputHeight;
+    private final boolean quantized;
+    private final int outputCount;
+    private final int[] outputShape;
+    private final MetadataExtractor.QuantizationParams inputQuantParams;
+    private final MetadataExtractor.QuantizationParams outputQuantParams;
+    private final List<String> labels;
+
+    private ModelInfo(String fileName, long fileSize, MetadataExtractor extractor, List<String> labels) {
+        int[] inputShape = extractor.getInputTensorShape(0);
+        this.fileName = fileName;
+        this.fileSize = fileSize;
+        this.inputHeight = inputShape[1];
+        this.inputWidth = inputShape[2];
+        byte inputType = extractor.getInputTensorType(0);
+        this.quantized = inputType == TensorType.UINT8;
+        this.outputCount = extractor.getOutputTensorCount();
+        this.outputShape = extractor.getOutputTensorShape(0);
+        this.inputQuantParams = extractor.getInputTensorQuantizationParams(0);
+        this.outputQuantParams = extractor.getOutputTensorQuantizationParams(0);
+        this.labels = labels;
+    }
+
+    /**
+     * Reads the description of {@code model}, a mapped {@code .tflite} file named {@code fileName}.
+     * Signed int8 inputs are rejected: the input is written and the output decoded as uint8.
+     */
+    public static ModelInfo read(String fileName, ByteBuffer model) throws IOException {
+        MetadataExtractor extractor = new MetadataExtractor(model.duplicate());
+        if (extractor.getInputTensorType(0) == TensorType.INT8) {
+            throw new IOException(fileName + " has a signed int8 input, only uint8 and float32 are supported");
+        }
+        List<String> labels = null;
+        if (extractor.hasMetadata()) {
+            for (String associated : extractor.getAssociatedFileNames()) {
+                if (associated.endsWith(".txt")) {
+                    try (InputStream in = extractor.getAssociatedFile(associated)) {
+                        labels = FileUtil.loadLabels(in);
+                    }
+                    break;
+                }
+            }
+        }
+        return new ModelInfo(fileName, model.capacity(), extractor, labels);
+    }
+
+    /** Asset file name without the {@code .tflite} extension, as shown in the model picker. */
+    public String getName() {
+        return fileName.endsWith(".tflite") ? fileName.substring(0, fileName.length() - ".tflite".length()) : fileName;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public int getInputWidth() {
+        return inputWidth;
+    }
+
+    public int getInputHeight() {
+        return inputHeight;
+    }
+
+    public boolean isQuantized() {
+        return quantized;
+    }
+
+    public int getOutputCount() {
+        return outputCount;
+    }
+
+    /**
+     * True for models whose graph ends in a detection post-processing op, which output boxes,
+     * classes, scores and a count instead of the raw YOLO rows.
+     */
+    public boolean hasInGraphNms() {
+        return outputCount == 4;
+    }
+
+    public int[] getOutputShape() {
+        return outputShape.clone();
+    }
+
+    public MetadataExtractor.QuantizationParams getInputQuantParams() {
+        return inputQuantParams;
+    }
+
+    public MetadataExtractor.QuantizationParams getOutputQuantParams() {
+        return outputQuantParams;
+    }
+
+    /** Labels packed into the model's metadata, or those of {@link #DEFAULT_LABEL_FILE} in assets. */
+    public List<String> loadLabels(Context context) throws IOException {
+        return labels != null ? labels : FileUtil.loadLabels(context, DEFAULT_LABEL_FILE);
+    }
+
+    @Override
+    public String toString() {
+        return getName() + " " + inputWidth + "x" + inputHeight + (quantized ? " uint8" : " float");
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.detectify.Detector;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.tensorflow.lite.support.common.FileUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Every {@code .tflite} model shipped in {@code assets/}, described by {@link ModelInfo}.
+ * Adding a model is a matter of dropping the file into assets; the detector sizes its buffers
+ * from the model, and {@link #selectByLatency} picks the largest one the phone runs fast enough.
+ */
+public class ModelRegistry {
+    private static final String TAG = "ModelRegistry";
+
+    private final Map<String, ModelInfo> models;
+
+    private ModelRegistry(Map<String, ModelInfo> models) {
+        this.models = models;
+    }
+
+    /**
+     * Reads the description of every model in assets. Models that cannot be read are skipped.
+     * Every model file is mapped and parsed, so call it off the UI thread.
+     */
+    public static ModelRegistry scan(Context context) {
+        Map<String, ModelInfo> models = new LinkedHashMap<>();
+        String[] files;
+        try {
+            files = context.getAssets().list("");
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot list assets: ", e);
+            files = new String[0];
+        }
+        for (String file : files) {
+            if (!file.endsWith(".tflite")) continue;
+            try {
+                ModelInfo info = ModelInfo.read(file, FileUtil.loadMappedFile(context, file));
+                models.put(info.getName(), info);
+                Log.i(TAG, "Found model " + info);
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "Skipping unreadable model " + file + ": " + e.getMessage());
+            }
+        }
+        return new ModelRegistry(models);
+    }
+
+    public List<ModelInfo> getModels() {
+        return Collections.unmodifiableList(new ArrayList<>(models.values()));
+    }
+
+    public List<String> getNames() {
+        return new ArrayList<>(models.keySet());
+    }
+
+    /** The model called {@code name} (file name without extension), or null. */
+    public ModelInfo get(String name) {
+        return models.get(name);
+    }
+
+    /**
+     * Returns the largest model whose tuned CPU latency at {@code inputSize} is within
+     * {@code budgetMicros}, or the fastest one if none is. Larger files are taken to be the more
+     * accurate models. Models without a stored profile are calibrated, which takes a few seconds
+     * each, so call this off the UI thread.
+     */
+    public ModelInfo selectByLatency(Context context, int inputSize, long budgetMicros) {
+        List<ModelInfo> bySize = new ArrayList<>(models.values());
+        Collections.sort(bySize, (a, b) -> Long.compare(b.getFileSize(), a.getFileSize()));
+        CpuThreadTuner tuner = new CpuThreadTuner(context);
+        ModelInfo fastest = null;
+        long fastestLatency = Long.MAX_VALUE;
+        for (ModelInfo info : bySize) {
+            long latency;
+            try {
+                ByteBuffer model = FileUtil.loadMappedFile(context, info.getFileName());
+                latency = tuner.obtain(CpuThreadTuner.keyFor(info.getFileName(), inputSize, inputSize),
+                        model, inputSize, inputSize).latencyMicros;
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "Cannot time " + info.getName() + ": " + e.getMessage());
+                continue;
+            }
+            if (latency <= budgetMicros) {
+                return info;
+            }
+            if (latency < fastestLatency) {
+                fastest = info;
+                fastestLatency = latency;
+            }
+        }
+        return fastest;
+    }
+}
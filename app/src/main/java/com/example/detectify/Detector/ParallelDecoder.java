@@ -0,0 +1,170 @@
+package com.example.detectify.Detector;
+
+import com.example.detectify.Utility.CpuTopology;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits the decode of one output tensor into contiguous row ranges. Each range has its own
+ * {@link YoloOutputDecoder} and {@link CandidateBuffer}; the calling thread decodes the first
+ * range while the others run on {@link CpuTopology#workerPool()}, and the buffers are then
+ * merged in row order, so without a candidate limit the result is the same as a single
+ * decoder's.
+ *
+ * With a candidate limit every range keeps its own top candidates and the merged set is cut
+ * back to the overall top ones, ties going to the earlier row as in a single decoder. The
+ * worker tasks are created once and reused for every frame.
+ */
+class ParallelDecoder {
+
+    private final YoloOutputDecoder[] decoders;
+    private final CandidateBuffer[] buffers;
+    private final RangeTask[] tasks;
+
+    // Scratch for cutting merged candidates back to the limit.
+    private final CandidateBuffer merged;
+    private long[] selectKeys = new long[0];
+    private final int[] rowToMerged;
+
+    ParallelDecoder(int workers, int inputWidth, int inputHeight, int rows, int rowStride, int[] headStart) {
+        decoders = new YoloOutputDecoder[workers];
+        buffers = new CandidateBuffer[workers];
+        tasks = new RangeTask[workers];
+        for (int w = 0; w < workers; w++) {
+            int from = (int) ((long) rows * w / workers);
+            int to = (int) ((long) rows * (w + 1) / workers);
+            decoders[w] = new YoloOutputDecoder(inputWidth, inputHeight, rows, rowStride);
+            if (headStart != null) {
+                decoders[w].setHeads(headStart);
+            }
+            decoders[w].setRowRange(from, to);
+            buffers[w] = new CandidateBuffer(to - from);
+            tasks[w] = new RangeTask(decoders[w], buffers[w]);
+        }
+        merged = new CandidateBuffer(rows);
+        rowToMerged = new int[rows];
+    }
+
+    int getWorkers() {
+        return decoders.length;
+    }
+
+    void decode(float[] output, float threshold, int maxCandidates, int headMask, CandidateBuffer out) {
+        for (RangeTask task : tasks) {
+            task.set(output, null, threshold, 0f, 0, maxCandidates, headMask);
+        }
+        run(maxCandidates, out);
+    }
+
+    void decodeQuantized(byte[] output, float threshold, float scale, int zeroPoint,
+                         int maxCandidates, int headMask, CandidateBuffer out) {
+        for (RangeTask task : tasks) {
+            task.set(null, output, threshold, scale, zeroPoint, maxCandidates, headMask);
+        }
+        run(maxCandidates, out);
+    }
+
+    private void run(int maxCandidates, CandidateBuffer out) {
+        ForkJoinPool pool = CpuTopology.workerPool();
+        for (int w = 1; w < tasks.length; w++) {
+            tasks[w].reinitialize();
+            pool.execute(tasks[w]);
+        }
+        try {
+            tasks[0].compute();
+        } finally {
+            for (int w = 1; w < tasks.length; w++) {
+                tasks[w].join();
+            }
+            for (RangeTask task : tasks) {
+                task.clear();
+            }
+        }
+        finish(maxCandidates, out);
+    }
+
+    private void finish(int maxCandidates, CandidateBuffer out) {
+        int total = 0;
+        for (CandidateBuffer buffer : buffers) {
+            total += buffer.count;
+        }
+        boolean limited = maxCandidates > 0 && total > maxCandidates;
+        CandidateBuffer target = limited ? merged : out;
+        target.clear();
+        for (CandidateBuffer buffer : buffers) {
+            for (int i = 0; i < buffer.count; i++) {
+                target.add(buffer.left[i], buffer.top[i], buffer.right[i], buffer.bottom[i],
+                        buffer.confidence[i], buffer.labelScore[i], buffer.labelId[i], buffer.row[i]);
+            }
+        }
+        if (limited) {
+            selectTop(maxCandidates, out);
+        }
+    }
+
+    /** Keeps the {@code limit} most confident merged candidates, ties going to the earlier row. */
+    private void selectTop(int limit, CandidateBuffer out) {
+        int count = merged.count;
+        if (selectKeys.length < count) {
+            selectKeys = new long[merged.capacity()];
+        }
+        for (int i = 0; i < count; i++) {
+            // Confidences are above a non-negative threshold, so their bit patterns sort like the values.
+            selectKeys[i] = ((long) (0x7fffffff - Float.floatToIntBits(merged.confidence[i])) << 32) | merged.row[i];
+            rowToMerged[merged.row[i]] = i;
+        }
+        Arrays.sort(selectKeys, 0, count);
+        out.clear();
+        for (int k = 0; k < limit; k++) {
+            int i = rowToMerged[(int) selectKeys[k]];
+            out.add(merged.left[i], merged.top[i], merged.right[i], merged.bottom[i],
+                    merged.confidence[i], merged.labelScore[i], merged.labelId[i], merged.row[i]);
+        }
+    }
+
+    /** Decodes one row range; kept per worker and reset for each frame. */
+    private static final class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final YoloOutputDecoder decoder;
+        private final CandidateBuffer buffer;
+        private float[] output;
+        private byte[] quantizedOutput;
+        private float threshold;
+        private float scale;
+        private int zeroPoint;
+
+        RangeTask(YoloOutputDecoder decoder, CandidateBuffer buffer) {
+            this.decoder = decoder;
+            this.buffer = buffer;
+        }
+
+        void set(float[] output, byte[] quantizedOutput, float threshold, float scale, int zeroPoint,
+                 int maxCandidates, int headMask) {
+            this.output = output;
+            this.quantizedOutput = quantizedOutput;
+            this.threshold = threshold;
+            this.scale = scale;
+            this.zeroPoint = zeroPoint;
+            decoder.setMaxCandidates(maxCandidates);
+            decoder.setHeadMask(headMask);
+        }
+
+        // Drop the output arrays so an idle task does not keep them alive.
+        void clear() {
+            output = null;
+            quantizedOutput = null;
+        }
+
+        @Override
+        protected void compute() {
+            if (quantizedOutput != null) {
+                decoder.decodeQuantized(quantizedOutput, threshold, scale, zeroPoint, buffer);
+            } else {
+                decoder.decode(output, threshold, buffer);
+            }
+        }
+    }
+}
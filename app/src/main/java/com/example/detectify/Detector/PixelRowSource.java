@@ -0,0 +1,11 @@
+package com.example.detectify.Detector;
+
+/**
+ * Produces the model input one row of ARGB pixels at a time, for callers that convert camera
+ * frames straight into the input tensor without building a {@code Bitmap} first.
+ */
+public interface PixelRowSource {
+
+    /** Writes the pixels of model input row {@code y} into {@code argb[0..inputWidth)}. */
+    void readRow(int y, int[] argb);
+}
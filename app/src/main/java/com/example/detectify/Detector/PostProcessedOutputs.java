@@ -0,0 +1,104 @@
+package com.example.detectify.Detector;
+
+import org.tensorflow.lite.DataType;
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outputs of a model whose graph ends in a detection post-processing op: boxes
+ * ([1, N, 4] as normalized ymin, xmin, ymax, xmax), classes [1, N], scores [1, N] and the number
+ * of valid detections [1]. The graph has already run NMS, so the few final detections are
+ * copied straight into a {@link CandidateBuffer} without the Java decoder or suppression.
+ */
+class PostProcessedOutputs {
+
+    private final float[][][] boxes;
+    private final float[][] classes;
+    private final float[][] scores;
+    private final float[] count;
+    private final Map<Integer, Object> outputs = new HashMap<>();
+    private final int maxDetections;
+    private final int[] order;
+
+    PostProcessedOutputs(Interpreter interpreter) {
+        int boxesIndex = -1;
+        int countIndex = -1;
+        List<Integer> others = new ArrayList<>();
+        for (int i = 0; i < interpreter.getOutputTensorCount(); i++) {
+            Tensor tensor = interpreter.getOutputTensor(i);
+            if (tensor.dataType() != DataType.FLOAT32) {
+                throw new IllegalArgumentException("Post-processed output " + tensor.name() + " is " + tensor.dataType() + ", expected FLOAT32");
+            }
+            int[] shape = tensor.shape();
+            if (shape.length == 3 && shape[2] == 4) {
+                boxesIndex = i;
+            } else if (tensor.numElements() == 1) {
+                countIndex = i;
+            } else {
+                others.add(i);
+            }
+        }
+        if (boxesIndex < 0 || countIndex < 0 || others.size() != 2) {
+            throw new IllegalArgumentException("Model outputs are not boxes, classes, scores and count");
+        }
+        // The op emits classes before scores; exported graphs sometimes reorder them but keep the names.
+        int classesIndex = others.get(0);
+        int scoresIndex = others.get(1);
+        String firstName = interpreter.getOutputTensor(classesIndex).name().toLowerCase();
+        String secondName = interpreter.getOutputTensor(scoresIndex).name().toLowerCase();
+        if (firstName.contains("score") || secondName.contains("class")) {
+            classesIndex = others.get(1);
+            scoresIndex = others.get(0);
+        }
+
+        maxDetections = interpreter.getOutputTensor(boxesIndex).shape()[1];
+        boxes = new float[1][maxDetections][4];
+        classes = new float[1][maxDetections];
+        scores = new float[1][maxDetections];
+        count = new float[1];
+        order = new int[maxDetections];
+        outputs.put(boxesIndex, boxes);
+        outputs.put(classesIndex, classes);
+        outputs.put(scoresIndex, scores);
+        outputs.put(countIndex, count);
+    }
+
+    int getMaxDetections() {
+        return maxDetections;
+    }
+
+    Map<Integer, Object> getOutputs() {
+        return outputs;
+    }
+
+    /**
+     * Copies the detections scoring above {@code threshold} into {@code out}, scaled to a
+     * {@code width x height} input, and returns how many there are. They are indexed by
+     * {@link #getOrder()} like the result of {@link NonMaxSuppression}.
+     */
+    int read(CandidateBuffer out, float threshold, int width, int height) {
+        out.clear();
+        int valid = Math.min((int) count[0], maxDetections);
+        for (int i = 0; i < valid; i++) {
+            float score = scores[0][i];
+            if (!(score > threshold)) continue;
+            float[] box = boxes[0][i];
+            float top = Math.max(0, Math.min(height, box[0] * height));
+            float left = Math.max(0, Math.min(width, box[1] * width));
+            float bottom = Math.max(0, Math.min(height, box[2] * height));
+            float right = Math.max(0, Math.min(width, box[3] * width));
+            order[out.count] = out.count;
+            out.add(left, top, right, bottom, score, score, (int) classes[0][i], i);
+        }
+        return out.count;
+    }
+
+    int[] getOrder() {
+        return order;
+    }
+}
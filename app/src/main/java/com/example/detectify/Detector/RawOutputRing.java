@@ -0,0 +1,81 @@
+package com.example.detectify.Detector;
+
+/**
+ * The last few raw output tensors, together with a decoder and NMS of their own, so the latest
+ * frames can be decoded again against new thresholds without another inference and without
+ * taking an interpreter away from the camera.
+ *
+ * Recording does not copy: the caller hands its output array over and gets the array of the
+ * oldest frame back to write the next output into. Recording and replaying synchronize on the ring.
+ */
+class RawOutputRing {
+
+    private final float[][] floatOutputs;
+    private final byte[][] byteOutputs;
+    private int next;
+    private int size;
+
+    final CandidateBuffer candidates;
+    final YoloOutputDecoder decoder;
+    final NonMaxSuppression nonMaxSuppression;
+
+    RawOutputRing(int capacity, boolean quantized, YoloOutputDecoder decoder, NonMaxSuppression nonMaxSuppression) {
+        int length = decoder.getRows() * decoder.getRowStride();
+        this.floatOutputs = quantized ? null : new float[capacity][length];
+        this.byteOutputs = quantized ? new byte[capacity][length] : null;
+        this.candidates = new CandidateBuffer(decoder.getRows());
+        this.decoder = decoder;
+        this.nonMaxSuppression = nonMaxSuppression;
+    }
+
+    /**
+     * Keeps {@code output} as the latest frame and returns the array it replaces, which the caller
+     * now owns. An array of another length is not kept and is returned as is.
+     */
+    synchronized float[] record(float[] output) {
+        float[] spare = floatOutputs[next];
+        if (output.length != spare.length) {
+            return output;
+        }
+        floatOutputs[next] = output;
+        advance();
+        return spare;
+    }
+
+    synchronized byte[] record(byte[] output) {
+        byte[] spare = byteOutputs[next];
+        if (output.length != spare.length) {
+            return output;
+        }
+        byteOutputs[next] = output;
+        advance();
+        return spare;
+    }
+
+    private void advance() {
+        int capacity = floatOutputs != null ? floatOutputs.length : byteOutputs.length;
+        next = (next + 1) % capacity;
+        size = Math.min(size + 1, capacity);
+    }
+
+    /** Number of frames recorded, up to the capacity. */
+    synchronized int size() {
+        return size;
+    }
+
+    /** Raw float output of the frame recorded {@code framesAgo} frames before the latest. */
+    synchronized float[] floatOutput(int framesAgo) {
+        return floatOutputs[index(floatOutputs.length, framesAgo)];
+    }
+
+    synchronized byte[] byteOutput(int framesAgo) {
+        return byteOutputs[index(byteOutputs.length, framesAgo)];
+    }
+
+    private int index(int capacity, int framesAgo) {
+        if (framesAgo < 0 || framesAgo >= size) {
+            throw new IndexOutOfBoundsException("Only " + size + " frames recorded");
+        }
+        return ((next - 1 - framesAgo) % capacity + capacity) % capacity;
+    }
+}
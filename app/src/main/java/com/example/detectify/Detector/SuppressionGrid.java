@@ -0,0 +1,100 @@
+package com.example.detectify.Detector;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over the detector input space holding the boxes kept so far by NMS.
+ *
+ * Every kept box is linked into each cell it covers. Two boxes with a positive intersection
+ * always share at least one cell, so checking only those cells finds every box that could
+ * reach an IoU above a non-negative threshold.
+ */
+class SuppressionGrid {
+
+    private final float cellSize;
+    private int cols;
+    private int rows;
+    private int[] cellHead;
+
+    // Linked lists of kept boxes per cell, stored in flat arrays.
+    private int[] entryNext = new int[256];
+    private int[] entryBox = new int[256];
+    private int entryCount;
+
+    // Marks candidates already tested during the current query, since a box spans several cells.
+    private int[] visitStamp = new int[0];
+    private int stamp;
+
+    SuppressionGrid(int spaceWidth, int spaceHeight, float cellSize) {
+        this.cellSize = cellSize;
+        setSpace(spaceWidth, spaceHeight);
+    }
+
+    void setSpace(int spaceWidth, int spaceHeight) {
+        cols = Math.max(1, (int) Math.ceil(spaceWidth / cellSize));
+        rows = Math.max(1, (int) Math.ceil(spaceHeight / cellSize));
+        if (cellHead == null || cellHead.length < cols * rows) {
+            cellHead = new int[cols * rows];
+        }
+    }
+
+    void reset(int candidateCount) {
+        Arrays.fill(cellHead, 0, cols * rows, -1);
+        entryCount = 0;
+        if (visitStamp.length < candidateCount) {
+            visitStamp = new int[candidateCount];
+            stamp = 0;
+        }
+    }
+
+    private int col(float x) {
+        int c = (int) (x / cellSize);
+        return c < 0 ? 0 : (c >= cols ? cols - 1 : c);
+    }
+
+    private int row(float y) {
+        int r = (int) (y / cellSize);
+        return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+    }
+
+    /** Returns true if a kept box overlaps candidate {@code idx} with an IoU above {@code iouThreshold}. */
+    boolean overlapsKept(CandidateBuffer c, int idx, float iouThreshold) {
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(visitStamp, 0);
+            stamp = 1;
+        }
+        int c0 = col(c.left[idx]), c1 = col(c.right[idx]);
+        int r0 = row(c.top[idx]), r1 = row(c.bottom[idx]);
+        for (int r = r0; r <= r1; r++) {
+            for (int k = r * cols + c0, end = r * cols + c1; k <= end; k++) {
+                for (int e = cellHead[k]; e >= 0; e = entryNext[e]) {
+                    int kept = entryBox[e];
+                    if (visitStamp[kept] == stamp) continue;
+                    visitStamp[kept] = stamp;
+                    if (NonMaxSuppression.boxIou(c, kept, idx) > iouThreshold) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    void insert(CandidateBuffer c, int idx) {
+        int c0 = col(c.left[idx]), c1 = col(c.right[idx]);
+        int r0 = row(c.top[idx]), r1 = row(c.bottom[idx]);
+        int needed = entryCount + (c1 - c0 + 1) * (r1 - r0 + 1);
+        if (needed > entryNext.length) {
+            int size = Math.max(needed, entryNext.length * 2);
+            entryNext = Arrays.copyOf(entryNext, size);
+            entryBox = Arrays.copyOf(entryBox, size);
+        }
+        for (int r = r0; r <= r1; r++) {
+            for (int k = r * cols + c0, end = r * cols + c1; k <= end; k++) {
+                entryBox[entryCount] = idx;
+                entryNext[entryCount] = cellHead[k];
+                cellHead[k] = entryCount++;
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.detectify.Detector;
+
+/**
+ * How {@link Yolov5TFLiteDetector} compares boxes during non-maximum suppression.
+ */
+public enum SuppressionMode {
+    /** Test every kept box against every later candidate. */
+    PAIRWISE,
+    /** Only test boxes that share a cell of a uniform grid over the input space. */
+    GRID,
+    /** Pairwise for small candidate sets, grid once the set is larger than the measured crossover. */
+    AUTO
+}
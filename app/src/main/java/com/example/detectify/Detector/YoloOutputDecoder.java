@@ -0,0 +1,235 @@
+package com.example.detectify.Detector;
+
+/**
+ * Decodes the raw YOLOv5 output ([1, rows, 5 + classes], normalized xywh) into a
+ * {@link CandidateBuffer}. Rows at or below the detect threshold are dropped before
+ * anything is written, and the arg-max class is found in place without copying the scores.
+ *
+ * With a candidate limit set, only the highest-confidence rows are kept, ties going to the
+ * earlier row. They are selected with a fixed-capacity min-heap of buffer slots, so a frame full
+ * of weak boxes costs the same as any other. An evicted slot is reused for the new row, so the
+ * kept rows are not in row order in the buffer; {@link NonMaxSuppression} orders them by
+ * confidence and row and does not depend on it.
+ *
+ * Quantized (uint8) outputs are thresholded on the raw bytes against a pre-quantized threshold,
+ * and only the rows that pass are dequantized, with the same arithmetic as {@code DequantizeOp}.
+ *
+ * When the row ranges of the detection heads are known, heads can be masked out, and their
+ * rows are skipped without being read.
+ */
+class YoloOutputDecoder {
+
+    private final int inputWidth;
+    private final int inputHeight;
+    private final int rows;
+    private final int rowStride;
+
+    private int maxCandidates;
+    private int[] heap = new int[0];
+    private int heapSize;
+
+    // headStart[h]..headStart[h + 1] are the rows of head h; a single range if the layout is unknown.
+    private int[] headStart;
+    private int headMask = ~0;
+    // Rows outside rowFrom..rowTo are left to other decoders when the decode is split.
+    private int rowFrom;
+    private int rowTo;
+
+    private final float[] rowScratch;
+    private float quantizedFor = Float.NaN;
+    private float quantizedScale;
+    private int quantizedZeroPoint;
+    private int quantizedThreshold;
+
+    YoloOutputDecoder(int inputWidth, int inputHeight, int rows, int rowStride) {
+        this.inputWidth = inputWidth;
+        this.inputHeight = inputHeight;
+        this.rows = rows;
+        this.rowStride = rowStride;
+        this.rowScratch = new float[rowStride];
+        this.headStart = new int[]{0, rows};
+        this.rowTo = rows;
+    }
+
+    int getRows() {
+        return rows;
+    }
+
+    int getRowStride() {
+        return rowStride;
+    }
+
+    int getMaxCandidates() {
+        return maxCandidates;
+    }
+
+    /** Keeps at most {@code maxCandidates} rows per frame; 0 or less keeps every row above the threshold. */
+    void setMaxCandidates(int maxCandidates) {
+        this.maxCandidates = maxCandidates;
+        if (maxCandidates > heap.length && maxCandidates < rows) {
+            heap = new int[maxCandidates];
+        }
+    }
+
+    /** Sets the first row of every head, followed by the total row count. */
+    void setHeads(int[] headStart) {
+        this.headStart = headStart.clone();
+    }
+
+    int getHeadCount() {
+        return headStart.length - 1;
+    }
+
+    /** Decodes only heads whose bit is set, bit {@code h} standing for head {@code h}. */
+    void setHeadMask(int headMask) {
+        this.headMask = headMask;
+    }
+
+    /** Decodes only rows {@code from} (inclusive) to {@code to} (exclusive). */
+    void setRowRange(int from, int to) {
+        this.rowFrom = from;
+        this.rowTo = to;
+    }
+
+    /** Head the output row belongs to. */
+    int headOf(int row) {
+        int h = 0;
+        while (h < headStart.length - 2 && row >= headStart[h + 1]) h++;
+        return h;
+    }
+
+    void decode(float[] output, float threshold, CandidateBuffer out) {
+        begin(out);
+        for (int h = 0; h < headStart.length - 1; h++) {
+            if ((headMask & (1 << h)) == 0) continue;
+            for (int i = Math.max(headStart[h], rowFrom), end = Math.min(headStart[h + 1], rowTo); i < end; i++) {
+                int gridStride = i * rowStride;
+                float confidence = output[4 + gridStride];
+                if (!(confidence > threshold) || !accepts(out, confidence)) continue;
+                offer(output, gridStride, confidence, i, out);
+            }
+        }
+    }
+
+    /**
+     * Decodes a uint8 output tensor. Rows are rejected on the raw confidence byte, and only
+     * rows that pass are dequantized as {@code (q - zeroPoint) / (1 / scale)}.
+     */
+    void decodeQuantized(byte[] output, float threshold, float scale, int zeroPoint, CandidateBuffer out) {
+        begin(out);
+        int minQuantized = quantizedThreshold(threshold, scale, zeroPoint);
+        float stddev = 1.0f / scale;
+        for (int h = 0; h < headStart.length - 1; h++) {
+            if ((headMask & (1 << h)) == 0) continue;
+            for (int i = Math.max(headStart[h], rowFrom), end = Math.min(headStart[h + 1], rowTo); i < end; i++) {
+                int gridStride = i * rowStride;
+                int q = output[4 + gridStride] & 0xff;
+                if (q < minQuantized) continue;
+                float confidence = (q - zeroPoint) / stddev;
+                if (!accepts(out, confidence)) continue;
+                for (int j = 0; j < rowStride; j++) {
+                    rowScratch[j] = ((output[gridStride + j] & 0xff) - zeroPoint) / stddev;
+                }
+                offer(rowScratch, 0, confidence, i, out);
+            }
+        }
+    }
+
+    /** Smallest raw value whose dequantized confidence is above {@code threshold}, 256 if none is. */
+    private int quantizedThreshold(float threshold, float scale, int zeroPoint) {
+        if (threshold != quantizedFor || scale != quantizedScale || zeroPoint != quantizedZeroPoint) {
+            float stddev = 1.0f / scale;
+            int q = 0;
+            while (q < 256 && !((q - zeroPoint) / stddev > threshold)) q++;
+            quantizedFor = threshold;
+            quantizedScale = scale;
+            quantizedZeroPoint = zeroPoint;
+            quantizedThreshold = q;
+        }
+        return quantizedThreshold;
+    }
+
+    private boolean limited() {
+        return maxCandidates > 0 && maxCandidates < rows;
+    }
+
+    private void begin(CandidateBuffer out) {
+        out.clear();
+        heapSize = 0;
+    }
+
+    /** With a full heap, rows not above the weakest kept row are dropped without decoding. */
+    private boolean accepts(CandidateBuffer out, float confidence) {
+        return !limited() || heapSize < maxCandidates || confidence > out.confidence[heap[0]];
+    }
+
+    private void offer(float[] output, int gridStride, float confidence, int row, CandidateBuffer out) {
+        if (!limited()) {
+            decodeRow(output, gridStride, confidence, row, out, out.count++);
+        } else if (heapSize < maxCandidates) {
+            int slot = out.count++;
+            decodeRow(output, gridStride, confidence, row, out, slot);
+            heap[heapSize] = slot;
+            siftUp(out, heapSize++);
+        } else {
+            // Replace the weakest kept row in place; rows come in ascending order, so a later row never wins a tie.
+            decodeRow(output, gridStride, confidence, row, out, heap[0]);
+            siftDown(out, 0, heapSize);
+        }
+    }
+
+    private static boolean weaker(CandidateBuffer c, int a, int b) {
+        return c.confidence[a] < c.confidence[b] || (c.confidence[a] == c.confidence[b] && c.row[a] > c.row[b]);
+    }
+
+    private void siftUp(CandidateBuffer c, int i) {
+        int slot = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!weaker(c, slot, heap[parent])) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = slot;
+    }
+
+    private void siftDown(CandidateBuffer c, int i, int size) {
+        int slot = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && weaker(c, heap[child + 1], heap[child])) child++;
+            if (!weaker(c, heap[child], slot)) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = slot;
+    }
+
+    /**
+     * Writes one row that already passed the threshold into {@code slot}. Box and label maths
+     * follow the original per-row {@code Recognition} construction so results stay identical.
+     */
+    void decodeRow(float[] output, int gridStride, float confidence, int row, CandidateBuffer out, int slot) {
+        float x = output[gridStride] * inputWidth;
+        float y = output[1 + gridStride] * inputHeight;
+        float w = output[2 + gridStride] * inputWidth;
+        float h = output[3 + gridStride] * inputHeight;
+        int xmin = (int) Math.max(0, x - w / 2.);
+        int ymin = (int) Math.max(0, y - h / 2.);
+        int xmax = (int) Math.min(inputWidth, x + w / 2.);
+        int ymax = (int) Math.min(inputHeight, y + h / 2.);
+
+        int labelId = 0;
+        float maxLabelScore = 0.f;
+        for (int j = 5; j < rowStride; j++) {
+            float score = output[j + gridStride];
+            if (score > maxLabelScore) {
+                maxLabelScore = score;
+                labelId = j - 5;
+            }
+        }
+
+        out.set(slot, xmin, ymin, xmax, ymax, confidence, maxLabelScore, labelId, row);
+    }
+}
@@ -2,7 +2,6 @@ package com.example.detectify.Detector;
 
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.graphics.RectF;
 import android.os.Build;
 import android.util.Log;
 import android.util.Size;
@@ -12,13 +11,12 @@ import com.example.detectify.Utility.Recognition;
 
 import org.tensorflow.lite.DataType;
 import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
 import org.tensorflow.lite.gpu.CompatibilityList;
 import org.tensorflow.lite.gpu.GpuDelegate;
 import org.tensorflow.lite.nnapi.NnApiDelegate;
 import org.tensorflow.lite.support.common.FileUtil;
-import org.tensorflow.lite.support.common.TensorProcessor;
 import org.tensorflow.lite.support.common.ops.CastOp;
-import org.tensorflow.lite.support.common.ops.DequantizeOp;
 import org.tensorflow.lite.support.common.ops.NormalizeOp;
 import org.tensorflow.lite.support.common.ops.QuantizeOp;
 import org.tensorflow.lite.support.image.ImageProcessor;
@@ -29,31 +27,61 @@ import org.tensorflow.lite.support.tensorbuffer.TensorBuffer;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
 
 public class Yolov5TFLiteDetector {
     private static final String TAG = "Yolov5TFLiteDetector";
 
-    private final Size INPUT_SIZE = new Size(640, 640);
+    public static final int[] SUPPORTED_INPUT_SIZES = new int[]{320, 416, 512, 640};
+    private static final int[] HEAD_STRIDES = new int[]{8, 16, 32};
+    private static final int ANCHORS_PER_CELL = 3;
+    // Fraction of a tile shared with its neighbour in detectTiled().
+    private static final float TILE_OVERLAP = 0.20f;
+    // Largest batch detect(List) packs into one inference; bounds the batched tensors' memory.
+    static final int MAX_BATCH_SIZE = 4;
+
+    private Size INPUT_SIZE = new Size(640, 640);
     private final int[] OUTPUT_SIZE = new int[]{1, 25200, 7};
     private Boolean IS_INT8 = false;
-    public float DETECT_THRESHOLD = 0.50f;
-    public float IOU_THRESHOLD = 0.50f;
-    private final float IOU_CLASS_DUPLICATED_THRESHOLD = 0.70f;
-    private final String MODEL_YOLOV5S = "yolov5s-fp16.tflite";
-    private final String LABEL_FILE = "label.txt";
+    private boolean IN_GRAPH_NMS = false;
+    // Thresholds and decode settings; each frame reads one snapshot.
+    private final AtomicReference<DetectorConfig> config = new AtomicReference<>(DetectorConfig.DEFAULT);
+    private final AtomicLongArray headDetections = new AtomicLongArray(HEAD_STRIDES.length);
+    // Number of recent raw outputs kept for redetectLatest().
+    private static final int RAW_OUTPUT_HISTORY = 2;
+    private volatile RawOutputRing rawOutputRing;
+    private boolean directPreprocessing = true;
+    private final String LABEL_FILE = ModelInfo.DEFAULT_LABEL_FILE;
     private String MODEL_FILE;
+    private ModelInfo modelInfo;
+    // Set once a caller picks the input size; otherwise the model's own input shape is used.
+    private boolean inputSizeSelected = false;
+    // Cleared once a resized input fails to give the expected head layout; the model then runs at its exported size.
+    private boolean inputResizable = true;
+    private String inputSizeError;
 
-    private Interpreter tflite;
-    private Interpreter.Options options = new Interpreter.Options();
     private ArrayList<String> associatedAxisLabels;
 
-    // reusable buffers
-    private TensorImage inputImage;
-    private TensorBuffer outputBuffer;
-    private ImageProcessor imageProcessor;
+    // Interpreters sharing one mapped model; every slot carries its own reusable buffers.
+    private volatile InterpreterPool interpreterPool;
+    private int interpreterCount = 1;
+    private int decodeParallelism = 1;
+    private int numThreads = -1;
+    private boolean useXnnpack = true;
+    private boolean useTunedCpuThreads = false;
+    private boolean useGpuDelegate = false;
+    private boolean useNnApiDelegate = false;
+    private GpuDelegate.Options gpuDelegateOptions;
     private MetadataExtractor.QuantizationParams input5SINT8QuantParams = new MetadataExtractor.QuantizationParams(0.003921568859368563f, 0);
     private MetadataExtractor.QuantizationParams output5SINT8QuantParams = new MetadataExtractor.QuantizationParams(0.00828352477401495f, 5);
 
@@ -61,17 +89,27 @@ public class Yolov5TFLiteDetector {
         return this.MODEL_FILE;
     }
 
+    /**
+     * Select a model in assets by name, with or without the {@code .tflite} extension. Its shapes,
+     * type and quantization are read from the file when the model is loaded.
+     */
     public void setModelFile(String modelFile) {
-        switch (modelFile) {
-            case "yolov5s-fp16":
-                IS_INT8 = false;
-                MODEL_FILE = MODEL_YOLOV5S;
-                break;
-            default:
-                Log.i(TAG, "Only yolov5s-fp16 is supported!");
+        MODEL_FILE = modelFile.endsWith(".tflite") ? modelFile : modelFile + ".tflite";
+        if (modelInfo != null && !modelInfo.getFileName().equals(MODEL_FILE)) {
+            modelInfo = null;
         }
     }
 
+    /** Select a model already described by a {@link ModelRegistry}. */
+    public void setModel(ModelInfo info) {
+        MODEL_FILE = info.getFileName();
+        modelInfo = info;
+    }
+
+    public ModelInfo getModelInfo() {
+        return modelInfo;
+    }
+
     public String getLabelFile() {
         return LABEL_FILE;
     }
@@ -80,171 +118,890 @@ public class Yolov5TFLiteDetector {
         return INPUT_SIZE;
     }
 
+    /**
+     * Number of output rows for a square input: three anchors per cell of the stride 8, 16 and 32 heads.
+     */
+    public static int outputRowsFor(int inputSize) {
+        int rows = 0;
+        for (int stride : HEAD_STRIDES) {
+            int cells = inputSize / stride;
+            rows += ANCHORS_PER_CELL * cells * cells;
+        }
+        return rows;
+    }
+
+    /**
+     * Whether the model can run at the {@link #SUPPORTED_INPUT_SIZES}. Models with in-graph NMS
+     * never can, and neither can models whose resized output did not match the head layout.
+     */
+    public boolean isInputResizable() {
+        return !IN_GRAPH_NMS && inputResizable;
+    }
+
+    /** Why the selected input size was dropped for the exported one, or null if it was not. */
+    public String getInputSizeError() {
+        return inputSizeError;
+    }
+
+    /**
+     * Whether {@code outputShape} is the {@code [1, rows, rowStride]} output of the stride 8, 16
+     * and 32 heads for a square input of {@code inputSize} pixels.
+     */
+    static boolean matchesHeadLayout(int[] outputShape, int inputSize, int rowStride) {
+        return outputShape.length == 3 && outputShape[0] == 1
+                && outputShape[1] == outputRowsFor(inputSize) && outputShape[2] == rowStride;
+    }
+
+    /**
+     * Run the model at a square input of {@code inputSize} pixels, one of {@link #SUPPORTED_INPUT_SIZES}.
+     * If the model is already loaded its input is resized and all reusable buffers are rebuilt.
+     * A model that cannot be resized falls back to its exported size, see {@link #getInputSizeError()}.
+     */
+    public void setInputSize(int inputSize) {
+        boolean supported = false;
+        for (int size : SUPPORTED_INPUT_SIZES) {
+            supported |= size == inputSize;
+        }
+        if (!supported) {
+            Log.i(TAG, "Unsupported input size " + inputSize + ", keeping " + INPUT_SIZE.getWidth());
+            return;
+        }
+        if (!isInputResizable()) {
+            Log.i(TAG, "Model runs at its own input size, keeping " + INPUT_SIZE.getWidth());
+            return;
+        }
+        inputSizeSelected = true;
+        if (inputSize == INPUT_SIZE.getWidth() && inputSize == INPUT_SIZE.getHeight()) {
+            return;
+        }
+        INPUT_SIZE = new Size(inputSize, inputSize);
+        OUTPUT_SIZE[1] = outputRowsFor(inputSize);
+        InterpreterPool pool = interpreterPool;
+        List<InterpreterPool.Slot> slots = pool != null ? pool.acquireAll() : null;
+        if (slots != null) {
+            try {
+                boolean resized = true;
+                for (int i = 0; i < slots.size() && resized; i++) {
+                    resized = resizeInput(slots.get(i).interpreter, inputSize);
+                }
+                if (!resized) {
+                    useExportedSize(inputSize);
+                    for (InterpreterPool.Slot slot : slots) {
+                        restoreExportedInput(slot.interpreter);
+                    }
+                }
+                for (InterpreterPool.Slot slot : slots) {
+                    createBuffers(slot);
+                }
+                createRawOutputRing();
+            } finally {
+                pool.releaseAll(slots);
+            }
+        }
+    }
+
+    /**
+     * Resizes the input of {@code tflite} to a square {@code inputSize} and returns whether its
+     * output still has the head layout. Exports with grid or anchor constants baked into the
+     * graph fail to allocate or keep their exported output shape.
+     */
+    private boolean resizeInput(Interpreter tflite, int inputSize) {
+        try {
+            tflite.resizeInput(0, new int[]{1, inputSize, inputSize, 3});
+            tflite.allocateTensors();
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            Log.e(TAG, "Cannot resize " + MODEL_FILE + " to " + inputSize + ": " + e.getMessage());
+            return false;
+        }
+        int[] outputShape = tflite.getOutputTensor(0).shape();
+        if (!matchesHeadLayout(outputShape, inputSize, OUTPUT_SIZE[2])) {
+            Log.e(TAG, "Cannot resize " + MODEL_FILE + " to " + inputSize + ", output is " + Arrays.toString(outputShape)
+                    + " instead of [1, " + outputRowsFor(inputSize) + ", " + OUTPUT_SIZE[2] + "]");
+            return false;
+        }
+        return true;
+    }
+
+    /** Goes back to the exported input and output size after {@code inputSize} failed. */
+    private void useExportedSize(int inputSize) {
+        inputResizable = false;
+        inputSizeSelected = false;
+        INPUT_SIZE = new Size(modelInfo.getInputWidth(), modelInfo.getInputHeight());
+        OUTPUT_SIZE[1] = modelInfo.getOutputShape()[1];
+        OUTPUT_SIZE[2] = modelInfo.getOutputShape()[2];
+        inputSizeError = modelInfo.getName() + " cannot run at " + inputSize + "x" + inputSize
+                + ", using its exported size " + INPUT_SIZE.getWidth() + "x" + INPUT_SIZE.getHeight();
+        Log.e(TAG, inputSizeError);
+    }
+
+    private void restoreExportedInput(Interpreter tflite) {
+        tflite.resizeInput(0, new int[]{1, INPUT_SIZE.getHeight(), INPUT_SIZE.getWidth(), 3});
+        tflite.allocateTensors();
+    }
+
     public int[] getOutputSize() {
         return OUTPUT_SIZE;
     }
 
+    public DetectorConfig getConfig() {
+        return config.get();
+    }
+
+    /** Publishes a new settings snapshot; frames already running finish with the old one. */
+    public void setConfig(DetectorConfig config) {
+        this.config.set(config);
+    }
+
+    /**
+     * Atomically replaces the settings with {@code update} applied to the current snapshot,
+     * so concurrent changes to different settings are not lost. Returns the new snapshot.
+     */
+    public DetectorConfig updateConfig(UnaryOperator<DetectorConfig> update) {
+        return config.updateAndGet(update);
+    }
+
     public void setIOUThreshold(float threshold) {
-        this.IOU_THRESHOLD = threshold;
+        updateConfig(c -> c.withIouThreshold(threshold));
     }
 
     public void setDetectThreshold(float threshold) {
-        this.DETECT_THRESHOLD = threshold;
+        updateConfig(c -> c.withDetectThreshold(threshold));
+    }
+
+    public SuppressionMode getSuppressionMode() {
+        return config.get().getSuppressionMode();
+    }
+
+    public void setSuppressionMode(SuppressionMode mode) {
+        updateConfig(c -> c.withSuppressionMode(mode));
+    }
+
+    public int getMaxCandidates() {
+        return config.get().getMaxCandidates();
+    }
+
+    /**
+     * Limit the rows passed to NMS to the {@code maxCandidates} most confident ones above the
+     * detect threshold. 0 keeps every row.
+     */
+    public void setMaxCandidates(int maxCandidates) {
+        updateConfig(c -> c.withMaxCandidates(maxCandidates));
+    }
+
+    public boolean isDirectPreprocessing() {
+        return directPreprocessing;
+    }
+
+    /**
+     * Write pixels straight into a reusable direct input buffer (the default) instead of going
+     * through {@code TensorImage} and {@code ImageProcessor}. Both produce the same tensor.
+     */
+    public void setDirectPreprocessing(boolean directPreprocessing) {
+        this.directPreprocessing = directPreprocessing;
+    }
+
+    public static int[] getHeadStrides() {
+        return HEAD_STRIDES.clone();
+    }
+
+    public int getHeadMask() {
+        return config.get().getHeadMask();
+    }
+
+    /**
+     * Decode only the detection heads whose bit is set, bit {@code h} standing for the head of
+     * stride {@code getHeadStrides()[h]}. The rows of disabled heads are skipped entirely.
+     */
+    public void setHeadMask(int headMask) {
+        updateConfig(c -> c.withHeadMask(headMask));
+    }
+
+    /**
+     * Detections kept after NMS per head since the last reset, indexed like {@link #getHeadStrides()},
+     * for choosing a head mask from real frames.
+     */
+    public long[] getHeadDetectionCounts() {
+        long[] counts = new long[headDetections.length()];
+        for (int h = 0; h < counts.length; h++) {
+            counts[h] = headDetections.get(h);
+        }
+        return counts;
+    }
+
+    public void resetHeadDetectionCounts() {
+        for (int h = 0; h < headDetections.length(); h++) {
+            headDetections.set(h, 0);
+        }
+    }
+
+    /**
+     * First output row of every head for a {@code width x height} input followed by the row
+     * count, or null if the rows do not add up to {@code rows}.
+     */
+    static int[] headStartsFor(int width, int height, int rows) {
+        int[] headStart = new int[HEAD_STRIDES.length + 1];
+        for (int h = 0; h < HEAD_STRIDES.length; h++) {
+            int stride = HEAD_STRIDES[h];
+            headStart[h + 1] = headStart[h] + ANCHORS_PER_CELL * (width / stride) * (height / stride);
+        }
+        return headStart[HEAD_STRIDES.length] == rows ? headStart : null;
+    }
+
+    public int getInterpreterCount() {
+        return interpreterCount;
+    }
+
+    /**
+     * Number of interpreters {@link #initialModel} creates. With more than one, frames can be
+     * detected concurrently and the CPU threads are split between the interpreters.
+     */
+    public void setInterpreterCount(int interpreterCount) {
+        this.interpreterCount = Math.max(1, interpreterCount);
+    }
+
+    public int getDecodeParallelism() {
+        return decodeParallelism;
+    }
+
+    /**
+     * Number of threads that decode each raw output, set before {@link #initialModel}. Above 1
+     * the rows are split into that many ranges decoded concurrently; 1 decodes on the calling
+     * thread only. Ignored for models that run NMS in the graph.
+     */
+    public void setDecodeParallelism(int decodeParallelism) {
+        this.decodeParallelism = Math.max(1, decodeParallelism);
+    }
+
+    public InterpreterPool getInterpreterPool() {
+        return interpreterPool;
     }
 
     public void initialModel(Context activity) {
+        try {
+            loadModel(activity);
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading model or label: ", e);
+            Toast.makeText(activity, "load model error: " + e.getMessage(), Toast.LENGTH_LONG).show();
+        }
+    }
+
+    /**
+     * Same as {@link #initialModel} but reports failures to the caller, so it can run off the UI thread.
+     */
+    public void loadModel(Context activity) throws IOException {
         Log.i(TAG, "Loading model: " + MODEL_FILE);
+        ByteBuffer tfliteModel = FileUtil.loadMappedFile(activity, MODEL_FILE);
+        if (modelInfo == null) {
+            modelInfo = ModelInfo.read(MODEL_FILE, tfliteModel);
+        }
+        applyModelInfo(modelInfo);
+        associatedAxisLabels = new ArrayList<>(modelInfo.loadLabels(activity));
+
+        if (useTunedCpuThreads && !useGpuDelegate && !useNnApiDelegate) {
+            CpuThreadTuner.Profile profile = new CpuThreadTuner(activity)
+                    .obtain(CpuThreadTuner.keyFor(MODEL_FILE, INPUT_SIZE.getWidth(), INPUT_SIZE.getHeight()),
+                            tfliteModel, INPUT_SIZE.getWidth(), INPUT_SIZE.getHeight());
+            numThreads = profile.numThreads;
+            useXnnpack = profile.useXnnpack;
+            Log.i(TAG, "Using tuned CPU profile: " + profile);
+        }
+
+        List<InterpreterPool.Slot> slots = new ArrayList<>(interpreterCount);
         try {
-            ByteBuffer tfliteModel = FileUtil.loadMappedFile(activity, MODEL_FILE);
-            tflite = new Interpreter(tfliteModel, options);
+            for (int i = 0; i < interpreterCount; i++) {
+                slots.add(createSlot(tfliteModel));
+            }
+        } catch (RuntimeException e) {
+            for (InterpreterPool.Slot slot : slots) {
+                slot.close();
+            }
+            throw e;
+        }
+        createRawOutputRing();
+        interpreterPool = new InterpreterPool(slots);
 
-            associatedAxisLabels = (ArrayList<String>) FileUtil.loadLabels(activity, LABEL_FILE);
+        Log.i(TAG, "Model and labels loaded successfully with " + interpreterCount + " interpreter(s).");
+    }
 
-            // reusable input and output buffers
-            inputImage = IS_INT8 ? new TensorImage(DataType.UINT8) : new TensorImage(DataType.FLOAT32);
-            outputBuffer = IS_INT8 ? TensorBuffer.createFixedSize(OUTPUT_SIZE, DataType.UINT8)
-                    : TensorBuffer.createFixedSize(OUTPUT_SIZE, DataType.FLOAT32);
+    /** Sizes the input, output and quantization from the model instead of the built-in defaults. */
+    private void applyModelInfo(ModelInfo info) {
+        IS_INT8 = info.isQuantized();
+        IN_GRAPH_NMS = info.hasInGraphNms();
+        int[] outputShape = info.getOutputShape();
+        if (IN_GRAPH_NMS) {
+            // The post-processing anchors are baked in for the exported size, so it cannot be resized.
+            INPUT_SIZE = new Size(info.getInputWidth(), info.getInputHeight());
+        } else if (inputSizeSelected) {
+            OUTPUT_SIZE[2] = outputShape[2];
+            OUTPUT_SIZE[1] = outputRowsFor(INPUT_SIZE.getWidth());
+        } else {
+            INPUT_SIZE = new Size(info.getInputWidth(), info.getInputHeight());
+            OUTPUT_SIZE[1] = outputShape[1];
+            OUTPUT_SIZE[2] = outputShape[2];
+        }
+        if (info.getInputQuantParams().getScale() != 0) {
+            input5SINT8QuantParams = info.getInputQuantParams();
+        }
+        if (!IN_GRAPH_NMS && info.getOutputQuantParams().getScale() != 0) {
+            output5SINT8QuantParams = info.getOutputQuantParams();
+        }
+        Log.i(TAG, "Model " + info + ", running at " + INPUT_SIZE.getWidth() + "x" + INPUT_SIZE.getHeight());
+    }
 
-            ImageProcessor.Builder builder = new ImageProcessor.Builder()
-                    .add(new ResizeOp(INPUT_SIZE.getHeight(), INPUT_SIZE.getWidth(), ResizeOp.ResizeMethod.BILINEAR))
-                    .add(new NormalizeOp(0, 255));
-            if (IS_INT8) {
-                builder.add(new QuantizeOp(input5SINT8QuantParams.getZeroPoint(), input5SINT8QuantParams.getScale()))
-                        .add(new CastOp(DataType.UINT8));
+    /**
+     * Runs one inference on a blank frame on every interpreter, so delegate compilation and
+     * buffer allocation happen here rather than on the first camera frame.
+     */
+    public void warmUp() {
+        InterpreterPool pool = interpreterPool;
+        List<InterpreterPool.Slot> slots = pool != null ? pool.acquireAll() : null;
+        if (slots == null) return;
+        Bitmap blank = Bitmap.createBitmap(INPUT_SIZE.getWidth(), INPUT_SIZE.getHeight(), Bitmap.Config.ARGB_8888);
+        try {
+            for (InterpreterPool.Slot slot : slots) {
+                detect(slot, blank);
             }
-            imageProcessor = builder.build();
+        } finally {
+            pool.releaseAll(slots);
+            blank.recycle();
+        }
+    }
 
-            Log.i(TAG, "Model and labels loaded successfully.");
-        } catch (IOException e) {
-            Log.e(TAG, "Error reading model or label: ", e);
-            Toast.makeText(activity, "load model error: " + e.getMessage(), Toast.LENGTH_LONG).show();
+    /**
+     * Closes every interpreter and delegate once the detections in flight have finished. The
+     * pool is closed first, so later frames, and callers already waiting for a slot, are
+     * skipped instead of failing or blocking.
+     */
+    public void close() {
+        InterpreterPool pool = interpreterPool;
+        if (pool == null) return;
+        interpreterPool = null;
+        rawOutputRing = null;
+        for (InterpreterPool.Slot slot : pool.close()) {
+            slot.close();
         }
+        Log.i(TAG, "Closed model: " + MODEL_FILE);
     }
 
-    public ArrayList<Recognition> detect(Bitmap bitmap) {
-        inputImage.load(bitmap);
-        inputImage = imageProcessor.process(inputImage);
+    private int threadsPerInterpreter() {
+        if (interpreterCount == 1) {
+            return numThreads;
+        }
+        int total = numThreads > 0 ? numThreads : Runtime.getRuntime().availableProcessors();
+        return Math.max(1, total / interpreterCount);
+    }
 
-        if (tflite != null) {
-            tflite.run(inputImage.getBuffer(), outputBuffer.getBuffer());
+    private InterpreterPool.Slot createSlot(ByteBuffer tfliteModel) {
+        InterpreterPool.Slot slot = new InterpreterPool.Slot();
+        // Delegates cannot be shared between interpreters, so every slot gets its own.
+        Interpreter.Options options = new Interpreter.Options();
+        int threads = threadsPerInterpreter();
+        if (threads > 0) {
+            options.setNumThreads(threads);
         }
+        options.setUseXNNPACK(useXnnpack);
+        if (useGpuDelegate) {
+            GpuDelegate gpuDelegate = new GpuDelegate(gpuDelegateOptions);
+            options.addDelegate(gpuDelegate);
+            slot.delegates.add(gpuDelegate);
+        }
+        if (useNnApiDelegate) {
+            NnApiDelegate nnApiDelegate = new NnApiDelegate();
+            options.addDelegate(nnApiDelegate);
+            slot.delegates.add(nnApiDelegate);
+        }
+        Interpreter tflite = new Interpreter(tfliteModel, options);
+        slot.interpreter = tflite;
 
         if (IS_INT8) {
-            TensorProcessor tensorProcessor = new TensorProcessor.Builder()
-                    .add(new DequantizeOp(output5SINT8QuantParams.getZeroPoint(), output5SINT8QuantParams.getScale()))
-                    .build();
-            outputBuffer = tensorProcessor.process(outputBuffer);
-        }
-
-        float[] recognitionArray = outputBuffer.getFloatArray();
-        ArrayList<Recognition> allRecognitions = new ArrayList<>(OUTPUT_SIZE[1]);
-
-        for (int i = 0; i < OUTPUT_SIZE[1]; i++) {
-            int gridStride = i * OUTPUT_SIZE[2];
-            float x = recognitionArray[0 + gridStride] * INPUT_SIZE.getWidth();
-            float y = recognitionArray[1 + gridStride] * INPUT_SIZE.getHeight();
-            float w = recognitionArray[2 + gridStride] * INPUT_SIZE.getWidth();
-            float h = recognitionArray[3 + gridStride] * INPUT_SIZE.getHeight();
-            int xmin = (int) Math.max(0, x - w / 2.);
-            int ymin = (int) Math.max(0, y - h / 2.);
-            int xmax = (int) Math.min(INPUT_SIZE.getWidth(), x + w / 2.);
-            int ymax = (int) Math.min(INPUT_SIZE.getHeight(), y + h / 2.);
-            float confidence = recognitionArray[4 + gridStride];
-            float[] classScores = Arrays.copyOfRange(recognitionArray, 5 + gridStride, this.OUTPUT_SIZE[2] + gridStride);
-
-            int labelId = 0;
-            float maxLabelScores = 0.f;
-            for (int j = 0; j < classScores.length; j++) {
-                if (classScores[j] > maxLabelScores) {
-                    maxLabelScores = classScores[j];
-                    labelId = j;
-                }
+            // Prefer the quantization the model was exported with over the built-in defaults.
+            Tensor.QuantizationParams inputParams = tflite.getInputTensor(0).quantizationParams();
+            if (inputParams.getScale() != 0) {
+                input5SINT8QuantParams = new MetadataExtractor.QuantizationParams(inputParams.getScale(), inputParams.getZeroPoint());
+            }
+            Tensor.QuantizationParams outputParams = tflite.getOutputTensor(0).quantizationParams();
+            if (outputParams.getScale() != 0) {
+                output5SINT8QuantParams = new MetadataExtractor.QuantizationParams(outputParams.getScale(), outputParams.getZeroPoint());
             }
+        }
+
+        // Only a selected size differs from the exported one; the first slot falls back for all.
+        if ((INPUT_SIZE.getWidth() != tflite.getInputTensor(0).shape()[2]
+                || INPUT_SIZE.getHeight() != tflite.getInputTensor(0).shape()[1])
+                && !resizeInput(tflite, INPUT_SIZE.getWidth())) {
+            useExportedSize(INPUT_SIZE.getWidth());
+            restoreExportedInput(tflite);
+        }
+        createBuffers(slot);
+        return slot;
+    }
+
+    private void createBuffers(InterpreterPool.Slot slot) {
+        slot.inputImage = IS_INT8 ? new TensorImage(DataType.UINT8) : new TensorImage(DataType.FLOAT32);
+        if (IN_GRAPH_NMS) {
+            // Only the final detections come out of the graph; no decoder or Java NMS needed.
+            slot.postProcessed = new PostProcessedOutputs(slot.interpreter);
+            slot.candidates = new CandidateBuffer(slot.postProcessed.getMaxDetections());
+        } else {
+            createRawOutputBuffers(slot);
+        }
+
+        ImageProcessor.Builder builder = new ImageProcessor.Builder()
+                .add(new ResizeOp(INPUT_SIZE.getHeight(), INPUT_SIZE.getWidth(), ResizeOp.ResizeMethod.BILINEAR))
+                .add(new NormalizeOp(0, 255));
+        if (IS_INT8) {
+            builder.add(new QuantizeOp(input5SINT8QuantParams.getZeroPoint(), input5SINT8QuantParams.getScale()))
+                    .add(new CastOp(DataType.UINT8));
+        }
+        slot.imageProcessor = builder.build();
+        slot.inputWriter = new DirectInputWriter(INPUT_SIZE.getWidth(), INPUT_SIZE.getHeight(), IS_INT8,
+                input5SINT8QuantParams.getZeroPoint(), input5SINT8QuantParams.getScale());
+    }
 
-            Recognition r = new Recognition(labelId, "", maxLabelScores, confidence, new RectF(xmin, ymin, xmax, ymax));
-            allRecognitions.add(r);
+    private void createRawOutputBuffers(InterpreterPool.Slot slot) {
+        // The row count follows from the input size; trust the resized graph if it disagrees.
+        int[] outputShape = slot.interpreter.getOutputTensor(0).shape();
+        if (outputShape[1] != OUTPUT_SIZE[1] || outputShape[2] != OUTPUT_SIZE[2]) {
+            Log.w(TAG, "Model output " + Arrays.toString(outputShape) + " differs from expected " + Arrays.toString(OUTPUT_SIZE));
+            OUTPUT_SIZE[1] = outputShape[1];
+            OUTPUT_SIZE[2] = outputShape[2];
         }
 
-        ArrayList<Recognition> nmsRecognitions = nms(allRecognitions);
-        ArrayList<Recognition> nmsFilterBoxDuplicationRecognitions = nmsAllClass(nmsRecognitions);
+        // reusable output buffers
+        slot.outputBuffer = IS_INT8 ? TensorBuffer.createFixedSize(OUTPUT_SIZE, DataType.UINT8)
+                : TensorBuffer.createFixedSize(OUTPUT_SIZE, DataType.FLOAT32);
+        if (IS_INT8) {
+            slot.quantizedOutputArray = new byte[OUTPUT_SIZE[1] * OUTPUT_SIZE[2]];
+        } else {
+            slot.outputArray = new float[OUTPUT_SIZE[1] * OUTPUT_SIZE[2]];
+        }
+        slot.candidates = new CandidateBuffer(OUTPUT_SIZE[1]);
+        slot.decoder = createDecoder();
+        slot.parallelDecoder = decodeParallelism > 1 ? new ParallelDecoder(decodeParallelism, INPUT_SIZE.getWidth(), INPUT_SIZE.getHeight(),
+                OUTPUT_SIZE[1], OUTPUT_SIZE[2], headStartsFor(INPUT_SIZE.getWidth(), INPUT_SIZE.getHeight(), OUTPUT_SIZE[1])) : null;
+        slot.nonMaxSuppression = createNonMaxSuppression();
+    }
 
-        for (Recognition recognition : nmsFilterBoxDuplicationRecognitions) {
-            recognition.setLabelName(associatedAxisLabels.get(recognition.getLabelId()));
+    private YoloOutputDecoder createDecoder() {
+        YoloOutputDecoder decoder = new YoloOutputDecoder(INPUT_SIZE.getWidth(), INPUT_SIZE.getHeight(), OUTPUT_SIZE[1], OUTPUT_SIZE[2]);
+        int[] headStart = headStartsFor(INPUT_SIZE.getWidth(), INPUT_SIZE.getHeight(), OUTPUT_SIZE[1]);
+        if (headStart != null) {
+            decoder.setHeads(headStart);
+        } else {
+            Log.w(TAG, "Output rows do not match the " + Arrays.toString(HEAD_STRIDES) + " heads, head masking disabled");
         }
+        return decoder;
+    }
 
-        return nmsFilterBoxDuplicationRecognitions;
+    private NonMaxSuppression createNonMaxSuppression() {
+        return new NonMaxSuppression(OUTPUT_SIZE[1], OUTPUT_SIZE[2] - 5, INPUT_SIZE.getWidth(), INPUT_SIZE.getHeight());
     }
 
-    protected ArrayList<Recognition> nms(ArrayList<Recognition> allRecognitions) {
-        ArrayList<Recognition> nmsRecognitions = new ArrayList<>();
+    /** Rebuilds the raw output history for the current output size; models with in-graph NMS have none. */
+    private void createRawOutputRing() {
+        rawOutputRing = IN_GRAPH_NMS ? null
+                : new RawOutputRing(RAW_OUTPUT_HISTORY, IS_INT8, createDecoder(), createNonMaxSuppression());
+    }
 
-        for (int i = 0; i < OUTPUT_SIZE[2] - 5; i++) {
-            allRecognitions.sort((a, b) -> Float.compare(b.getConfidence(), a.getConfidence()));
-            boolean[] removed = new boolean[allRecognitions.size()];
+    /**
+     * Detects on whichever interpreter is free, waiting for one if all are busy.
+     */
+    public ArrayList<Recognition> detect(Bitmap bitmap) {
+        return detect(bitmap, new DetectionResult()).toRecognitions();
+    }
 
-            for (int j = 0; j < allRecognitions.size(); j++) {
-                if (removed[j]) continue;
-                Recognition max = allRecognitions.get(j);
-                if (max.getLabelId() != i || max.getConfidence() <= DETECT_THRESHOLD) continue;
-                nmsRecognitions.add(max);
-                for (int k = j + 1; k < allRecognitions.size(); k++) {
-                    if (!removed[k] && allRecognitions.get(k).getLabelId() == i &&
-                            boxIou(max.getLocation(), allRecognitions.get(k).getLocation()) > IOU_THRESHOLD) {
-                        removed[k] = true;
-                    }
-                }
+    /**
+     * Detects on whichever interpreter is free into {@code out}, which is reused across frames.
+     */
+    public DetectionResult detect(Bitmap bitmap, DetectionResult out) {
+        InterpreterPool pool = interpreterPool;
+        InterpreterPool.Slot slot = pool != null ? pool.acquire() : null;
+        if (slot == null) {
+            out.clear();
+            return out;
+        }
+        try {
+            return detect(slot, bitmap, out);
+        } finally {
+            pool.release(slot);
+        }
+    }
+
+    /**
+     * Detects on a slot the caller has checked out from {@link #getInterpreterPool()}.
+     */
+    public ArrayList<Recognition> detect(InterpreterPool.Slot slot, Bitmap bitmap) {
+        return detect(slot, bitmap, new DetectionResult()).toRecognitions();
+    }
+
+    /**
+     * Detects on a slot the caller has checked out from {@link #getInterpreterPool()} into
+     * {@code out}. The result does not refer to the slot, so it stays valid after the slot is
+     * released.
+     */
+    public DetectionResult detect(InterpreterPool.Slot slot, Bitmap bitmap, DetectionResult out) {
+        ByteBuffer input;
+        if (directPreprocessing) {
+            input = slot.inputWriter.write(bitmap);
+        } else {
+            slot.inputImage.load(bitmap);
+            slot.inputImage = slot.imageProcessor.process(slot.inputImage);
+            input = slot.inputImage.getBuffer();
+        }
+        return detectInput(slot, input, out);
+    }
+
+    /**
+     * Detects on an input the caller produces row by row at the model input size, written
+     * straight into the slot's input tensor. Used to feed camera frames without a Bitmap.
+     */
+    public DetectionResult detect(InterpreterPool.Slot slot, PixelRowSource source, DetectionResult out) {
+        return detectInput(slot, slot.inputWriter.write(source), out);
+    }
+
+    private DetectionResult detectInput(InterpreterPool.Slot slot, ByteBuffer input, DetectionResult out) {
+        int resultCount = runAndSuppress(slot, input, config.get());
+        RawOutputRing ring = rawOutputRing;
+        if (ring != null && slot.postProcessed == null) {
+            // The ring keeps the output array and gives the slot its oldest one to reuse.
+            if (IS_INT8) {
+                slot.quantizedOutputArray = ring.record(slot.quantizedOutputArray);
+            } else {
+                slot.outputArray = ring.record(slot.outputArray);
             }
         }
-        return nmsRecognitions;
+        out.fill(slot.candidates, slot.result, resultCount, associatedAxisLabels);
+        return out;
     }
 
-    protected ArrayList<Recognition> nmsAllClass(ArrayList<Recognition> allRecognitions) {
-        allRecognitions.sort((a, b) -> Float.compare(b.getConfidence(), a.getConfidence()));
-        ArrayList<Recognition> nmsRecognitions = new ArrayList<>();
-        boolean[] removed = new boolean[allRecognitions.size()];
+    /**
+     * Decodes the most recent frame from {@link #detect(InterpreterPool.Slot, Bitmap)} again with
+     * the current thresholds, without another inference, so threshold changes show at once.
+     * Returns null if no frame has been recorded or the model runs NMS in its graph.
+     */
+    public ArrayList<Recognition> redetectLatest() {
+        DetectionResult result = redetectLatest(new DetectionResult());
+        return result == null ? null : result.toRecognitions();
+    }
 
-        for (int i = 0; i < allRecognitions.size(); i++) {
-            if (removed[i] || allRecognitions.get(i).getConfidence() <= DETECT_THRESHOLD) continue;
-            Recognition max = allRecognitions.get(i);
-            nmsRecognitions.add(max);
-            for (int j = i + 1; j < allRecognitions.size(); j++) {
-                if (!removed[j] &&
-                        boxIou(max.getLocation(), allRecognitions.get(j).getLocation()) > IOU_CLASS_DUPLICATED_THRESHOLD) {
-                    removed[j] = true;
+    /** Like {@link #redetectLatest()}, filling {@code out}; returns null when there is nothing to decode. */
+    public DetectionResult redetectLatest(DetectionResult out) {
+        RawOutputRing ring = rawOutputRing;
+        if (ring == null) {
+            return null;
+        }
+        DetectorConfig config = this.config.get();
+        synchronized (ring) {
+            if (ring.size() == 0) {
+                return null;
+            }
+            ring.decoder.setMaxCandidates(config.getMaxCandidates());
+            ring.decoder.setHeadMask(config.getHeadMask());
+            if (IS_INT8) {
+                ring.decoder.decodeQuantized(ring.byteOutput(0), config.getDetectThreshold(),
+                        output5SINT8QuantParams.getScale(), output5SINT8QuantParams.getZeroPoint(), ring.candidates);
+            } else {
+                ring.decoder.decode(ring.floatOutput(0), config.getDetectThreshold(), ring.candidates);
+            }
+            ring.nonMaxSuppression.setMode(config.getSuppressionMode());
+            int resultCount = ring.nonMaxSuppression.run(ring.candidates, config.getIouThreshold(), config.getClassDuplicatedThreshold());
+            out.fill(ring.candidates, ring.nonMaxSuppression.getResult(), resultCount, associatedAxisLabels);
+            return out;
+        }
+    }
+
+    /**
+     * Detects on several images with batched inferences, so the interpreter overhead is paid
+     * once per batch rather than once per image. Up to {@link #MAX_BATCH_SIZE} images share one
+     * inference; the result list has one entry per image, in order. Meant for offline
+     * re-counting of stored photos, so it blocks and should run off the UI thread.
+     */
+    public List<ArrayList<Recognition>> detect(List<Bitmap> bitmaps) {
+        List<ArrayList<Recognition>> results = new ArrayList<>(bitmaps.size());
+        InterpreterPool pool = interpreterPool;
+        InterpreterPool.Slot slot = pool != null && !bitmaps.isEmpty() ? pool.acquire() : null;
+        if (slot == null) {
+            for (int i = 0; i < bitmaps.size(); i++) {
+                results.add(new ArrayList<>());
+            }
+            return results;
+        }
+        DetectorConfig config = this.config.get();
+        int batchSize = batchSizeFor(bitmaps.size());
+        if (IN_GRAPH_NMS || batchSize == 1) {
+            // The post-processing op works on one image, so these models are run image by image;
+            // so is a single image, which needs no batched tensors.
+            try {
+                for (Bitmap bitmap : bitmaps) {
+                    results.add(detect(slot, bitmap));
                 }
+            } finally {
+                pool.release(slot);
             }
+            return results;
         }
-        return nmsRecognitions;
+        try {
+            resizeBatch(slot, batchSize);
+            for (int[] range : batchRanges(bitmaps.size(), batchSize)) {
+                detectBatch(slot, bitmaps.subList(range[0], range[1]), config, results);
+            }
+        } finally {
+            try {
+                resizeBatch(slot, 1);
+            } finally {
+                pool.release(slot);
+            }
+        }
+        return results;
+    }
+
+    /** Batch dimension for {@code imageCount} images; 1 means they are run one at a time. */
+    static int batchSizeFor(int imageCount) {
+        return Math.max(1, Math.min(imageCount, MAX_BATCH_SIZE));
+    }
+
+    /** Consecutive {start, end} ranges of at most {@code batchSize} images covering all of them. */
+    static List<int[]> batchRanges(int imageCount, int batchSize) {
+        List<int[]> ranges = new ArrayList<>((imageCount + batchSize - 1) / batchSize);
+        for (int start = 0; start < imageCount; start += batchSize) {
+            ranges.add(new int[]{start, Math.min(imageCount, start + batchSize)});
+        }
+        return ranges;
+    }
+
+    /** Resizes the slot's interpreter to a batch dimension and sizes its batched tensors to match. */
+    private void resizeBatch(InterpreterPool.Slot slot, int batchSize) {
+        boolean buffersReady = batchSize == 1 || slot.batchInput != null;
+        if (slot.batchSize == batchSize && buffersReady) return;
+        slot.interpreter.resizeInput(0, new int[]{batchSize, INPUT_SIZE.getHeight(), INPUT_SIZE.getWidth(), 3});
+        slot.interpreter.allocateTensors();
+        slot.batchSize = batchSize;
+        if (batchSize == 1) {
+            // The batched tensors are only kept while a batch is running.
+            slot.batchInput = null;
+            slot.batchOutput = null;
+            return;
+        }
+        int[] outputShape = slot.interpreter.getOutputTensor(0).shape();
+        if (outputShape[0] != batchSize || outputShape[1] != OUTPUT_SIZE[1] || outputShape[2] != OUTPUT_SIZE[2]) {
+            throw new IllegalStateException("Model cannot be batched, output is " + Arrays.toString(outputShape));
+        }
+        int bytesPerValue = IS_INT8 ? 1 : 4;
+        slot.batchInput = ByteBuffer.allocateDirect(batchSize * INPUT_SIZE.getWidth() * INPUT_SIZE.getHeight() * 3 * bytesPerValue)
+                .order(ByteOrder.nativeOrder());
+        slot.batchOutput = ByteBuffer.allocateDirect(batchSize * OUTPUT_SIZE[1] * OUTPUT_SIZE[2] * bytesPerValue)
+                .order(ByteOrder.nativeOrder());
+    }
+
+    private void detectBatch(InterpreterPool.Slot slot, List<Bitmap> batch, DetectorConfig config,
+                             List<ArrayList<Recognition>> results) {
+        // A short last batch leaves earlier images in the unused slices; their outputs are ignored.
+        ByteBuffer input = slot.batchInput;
+        input.rewind();
+        for (Bitmap bitmap : batch) {
+            slot.inputWriter.writeTo(bitmap, input);
+        }
+        input.rewind();
+        ByteBuffer output = slot.batchOutput;
+        output.rewind();
+        slot.interpreter.run(input, output);
+
+        int sliceBytes = output.capacity() / slot.batchSize;
+        for (int b = 0; b < batch.size(); b++) {
+            output.position(b * sliceBytes);
+            int resultCount = decodeAndSuppress(slot, output, config);
+            results.add(toRecognitions(slot.candidates, slot.result, resultCount));
+        }
+    }
+
+    private ArrayList<Recognition> toRecognitions(CandidateBuffer candidates, int[] result, int resultCount) {
+        DetectionResult detections = new DetectionResult(resultCount);
+        detections.fill(candidates, result, resultCount, associatedAxisLabels);
+        return detections.toRecognitions();
+    }
+
+    /**
+     * Runs one inference and leaves the boxes kept by NMS, in input coordinates, in
+     * {@code slot.candidates} as indexed by {@code slot.result}.
+     */
+    private int runAndSuppress(InterpreterPool.Slot slot, ByteBuffer input, DetectorConfig config) {
+        if (slot.postProcessed != null) {
+            slot.interpreter.runForMultipleInputsOutputs(new Object[]{input}, slot.postProcessed.getOutputs());
+            int resultCount = slot.postProcessed.read(slot.candidates, config.getDetectThreshold(), INPUT_SIZE.getWidth(), INPUT_SIZE.getHeight());
+            slot.result = slot.postProcessed.getOrder();
+            return resultCount;
+        }
+        slot.interpreter.run(input, slot.outputBuffer.getBuffer());
+        ByteBuffer outputBytes = slot.outputBuffer.getBuffer();
+        outputBytes.rewind();
+        int resultCount = decodeAndSuppress(slot, outputBytes, config);
+        outputBytes.rewind();
+        return resultCount;
+    }
+
+    /** Decodes one image's output, read from the current position of {@code outputBytes}, and runs NMS. */
+    private int decodeAndSuppress(InterpreterPool.Slot slot, ByteBuffer outputBytes, DetectorConfig config) {
+        // Copy the output once into the reusable array and keep only rows above the threshold.
+        CandidateBuffer candidates = slot.candidates;
+        ParallelDecoder parallel = slot.parallelDecoder;
+        slot.decoder.setMaxCandidates(config.getMaxCandidates());
+        slot.decoder.setHeadMask(config.getHeadMask());
+        if (IS_INT8) {
+            outputBytes.get(slot.quantizedOutputArray);
+            if (parallel != null) {
+                parallel.decodeQuantized(slot.quantizedOutputArray, config.getDetectThreshold(),
+                        output5SINT8QuantParams.getScale(), output5SINT8QuantParams.getZeroPoint(),
+                        config.getMaxCandidates(), config.getHeadMask(), candidates);
+            } else {
+                slot.decoder.decodeQuantized(slot.quantizedOutputArray, config.getDetectThreshold(),
+                        output5SINT8QuantParams.getScale(), output5SINT8QuantParams.getZeroPoint(), candidates);
+            }
+        } else {
+            outputBytes.asFloatBuffer().get(slot.outputArray);
+            if (parallel != null) {
+                parallel.decode(slot.outputArray, config.getDetectThreshold(),
+                        config.getMaxCandidates(), config.getHeadMask(), candidates);
+            } else {
+                slot.decoder.decode(slot.outputArray, config.getDetectThreshold(), candidates);
+            }
+        }
+
+        slot.nonMaxSuppression.setMode(config.getSuppressionMode());
+        int resultCount = slot.nonMaxSuppression.run(candidates, config.getIouThreshold(), config.getClassDuplicatedThreshold());
+        slot.result = slot.nonMaxSuppression.getResult();
+        if (slot.decoder.getHeadCount() == HEAD_STRIDES.length) {
+            for (int k = 0; k < resultCount; k++) {
+                headDetections.incrementAndGet(slot.decoder.headOf(candidates.row[slot.result[k]]));
+            }
+        }
+        return resultCount;
     }
 
-    protected float boxIou(RectF a, RectF b) {
-        float intersection = boxIntersection(a, b);
-        float union = boxUnion(a, b);
-        if (union <= 0) return 0;
-        return intersection / union;
+    /**
+     * Detects on a large still image without downscaling it. The image is cut into overlapping
+     * tiles of the model input size, the tiles are spread over every interpreter in the pool,
+     * and the boxes are merged across tiles with the usual NMS. Boxes are in image coordinates.
+     *
+     * Blocks until every tile is done, so call it off the UI thread.
+     */
+    public ArrayList<Recognition> detectTiled(Bitmap image) {
+        InterpreterPool pool = interpreterPool;
+        if (pool == null) {
+            return new ArrayList<>();
+        }
+        DetectorConfig config = this.config.get();
+        int imageWidth = image.getWidth();
+        int imageHeight = image.getHeight();
+        int[] tileX = tileOrigins(imageWidth, INPUT_SIZE.getWidth());
+        int[] tileY = tileOrigins(imageHeight, INPUT_SIZE.getHeight());
+        int tileCount = tileX.length * tileY.length;
+        AtomicInteger nextTile = new AtomicInteger();
+
+        // Every worker holds one slot and pulls tiles until none are left.
+        int workers = Math.min(pool.size(), tileCount);
+        List<CandidateBuffer> parts;
+        if (workers == 1) {
+            parts = new ArrayList<>();
+            parts.add(detectTiles(pool, image, tileX, tileY, nextTile, config));
+        } else {
+            parts = Observable.range(0, workers)
+                    .flatMap(worker -> Observable.fromCallable(() ->
+                            detectTiles(pool, image, tileX, tileY, nextTile, config))
+                            .subscribeOn(Schedulers.computation()))
+                    .toList()
+                    .blockingGet();
+        }
+
+        int total = 0;
+        for (CandidateBuffer part : parts) {
+            total += part.count;
+        }
+        CandidateBuffer gathered = new CandidateBuffer(Math.max(1, total));
+        for (CandidateBuffer part : parts) {
+            for (int i = 0; i < part.count; i++) {
+                gathered.add(part.left[i], part.top[i], part.right[i], part.bottom[i],
+                        part.confidence[i], part.labelScore[i], part.labelId[i], part.row[i]);
+            }
+        }
+        // Merge in tile and row order and number the candidates 0..total-1. NMS breaks ties on
+        // that number, so the result does not depend on which worker ran which tile, and its
+        // row table stays the size of the merged set rather than tiles x output rows.
+        long[] order = new long[gathered.count];
+        for (int i = 0; i < gathered.count; i++) {
+            order[i] = ((long) gathered.row[i] << 32) | i;
+        }
+        Arrays.sort(order);
+        CandidateBuffer merged = new CandidateBuffer(Math.max(1, total));
+        for (int k = 0; k < order.length; k++) {
+            int i = (int) order[k];
+            merged.add(gathered.left[i], gathered.top[i], gathered.right[i], gathered.bottom[i],
+                    gathered.confidence[i], gathered.labelScore[i], gathered.labelId[i], k);
+        }
+        NonMaxSuppression nonMaxSuppression = new NonMaxSuppression(merged.capacity(), classCount(), imageWidth, imageHeight);
+        nonMaxSuppression.setMode(config.getSuppressionMode());
+        int resultCount = nonMaxSuppression.run(merged, config.getIouThreshold(), config.getClassDuplicatedThreshold());
+        return toRecognitions(merged, nonMaxSuppression.getResult(), resultCount);
     }
 
-    protected float boxIntersection(RectF a, RectF b) {
-        float maxLeft = Math.max(a.left, b.left);
-        float maxTop = Math.max(a.top, b.top);
-        float minRight = Math.min(a.right, b.right);
-        float minBottom = Math.min(a.bottom, b.bottom);
-        float w = minRight - maxLeft;
-        float h = minBottom - maxTop;
-        return (w < 0 || h < 0) ? 0 : w * h;
+    /**
+     * Classes a candidate can be labelled with: the score columns of the raw output, or the
+     * labels for models with in-graph NMS, whose output has no score columns.
+     */
+    private int classCount() {
+        return IN_GRAPH_NMS ? associatedAxisLabels.size() : OUTPUT_SIZE[2] - 5;
     }
 
-    protected float boxUnion(RectF a, RectF b) {
-        float i = boxIntersection(a, b);
-        float u = (a.right - a.left) * (a.bottom - a.top)
-                + (b.right - b.left) * (b.bottom - b.top) - i;
-        return u;
+    private CandidateBuffer detectTiles(InterpreterPool pool, Bitmap image, int[] tileX, int[] tileY, AtomicInteger nextTile,
+                                        DetectorConfig config) {
+        int tileCount = tileX.length * tileY.length;
+        int imageWidth = image.getWidth();
+        int imageHeight = image.getHeight();
+        CandidateBuffer kept = new CandidateBuffer(64);
+        InterpreterPool.Slot slot = pool.acquire();
+        if (slot == null) {
+            // Closed meanwhile; the tiles this worker would have taken are left out.
+            return kept;
+        }
+        try {
+            int tile;
+            while ((tile = nextTile.getAndIncrement()) < tileCount) {
+                int x = tileX[tile % tileX.length];
+                int y = tileY[tile / tileX.length];
+                int resultCount = runAndSuppress(slot, slot.inputWriter.writeRegion(image, x, y), config);
+                int[] result = slot.result;
+                CandidateBuffer c = slot.candidates;
+                kept.ensureCapacity(kept.count + resultCount);
+                for (int k = 0; k < resultCount; k++) {
+                    int i = result[k];
+                    // Shift into image coordinates and clip away the padding of edge tiles.
+                    kept.add(Math.min(c.left[i] + x, imageWidth), Math.min(c.top[i] + y, imageHeight),
+                            Math.min(c.right[i] + x, imageWidth), Math.min(c.bottom[i] + y, imageHeight),
+                            c.confidence[i], c.labelScore[i], c.labelId[i], tile * OUTPUT_SIZE[1] + c.row[i]);
+                }
+            }
+        } finally {
+            pool.release(slot);
+        }
+        return kept;
+    }
+
+    /** Evenly spaced tile origins covering {@code length} with at least {@link #TILE_OVERLAP} overlap. */
+    static int[] tileOrigins(int length, int tile) {
+        if (length <= tile) {
+            return new int[]{0};
+        }
+        int step = Math.max(1, (int) (tile * (1 - TILE_OVERLAP)));
+        int count = (length - tile + step - 1) / step + 1;
+        int[] origins = new int[count];
+        for (int i = 0; i < count; i++) {
+            origins[i] = (int) ((long) i * (length - tile) / (count - 1));
+        }
+        return origins;
     }
 
     public void addNNApiDelegate() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
-            NnApiDelegate nnApiDelegate = new NnApiDelegate();
-            options.addDelegate(nnApiDelegate);
+            useNnApiDelegate = true;
             Log.i(TAG, "using nnapi delegate.");
         }
     }
@@ -252,16 +1009,23 @@ public class Yolov5TFLiteDetector {
     public void addGPUDelegate() {
         CompatibilityList compatibilityList = new CompatibilityList();
         if (compatibilityList.isDelegateSupportedOnThisDevice()) {
-            GpuDelegate.Options delegateOptions = compatibilityList.getBestOptionsForThisDevice();
-            GpuDelegate gpuDelegate = new GpuDelegate(delegateOptions);
-            options.addDelegate(gpuDelegate);
+            gpuDelegateOptions = compatibilityList.getBestOptionsForThisDevice();
+            useGpuDelegate = true;
             Log.i(TAG, "using gpu delegate.");
         } else {
-            useMaxCPUThreads();
+            useTunedCpuThreads();
             Log.i(TAG, "GPU not supported, using CPU threads.");
         }
     }
 
+    /**
+     * Use the thread count and XNNPACK setting {@link CpuThreadTuner} measured as fastest for
+     * this model on this phone. The first load of a model calibrates it, which takes a few seconds.
+     */
+    public void useTunedCpuThreads() {
+        useTunedCpuThreads = true;
+    }
+
     public void useMaxCPUThreads() {
         int coreCount = Runtime.getRuntime().availableProcessors();
         addThread(coreCount);
@@ -269,6 +1033,6 @@ public class Yolov5TFLiteDetector {
     }
 
     public void addThread(int threadCount) {
-        options.setNumThreads(Math.max(4, threadCount));
+        numThreads = Math.max(4, threadCount);
     }
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+package com.example.detectify.Utility;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+
+public class CpuTopology {
+    // Cores clocked within this fraction of the fastest one count as big cores.
+    private static final float BIG_CORE_FREQUENCY_RATIO = 0.8f;
+
+    private static int bigCoreCount = -1;
+    private static ForkJoinPool workerPool;
+
+    // Number of performance cores on a big.LITTLE CPU, or every core if the clocks can't be read
+    public static synchronized int bigCoreCount() {
+        if (bigCoreCount > 0) return bigCoreCount;
+        int cores = Runtime.getRuntime().availableProcessors();
+        long[] maxFrequency = new long[cores];
+        long fastest = 0;
+        for (int cpu = 0; cpu < cores; cpu++) {
+            maxFrequency[cpu] = readMaxFrequency(cpu);
+            fastest = Math.max(fastest, maxFrequency[cpu]);
+        }
+        if (fastest <= 0) {
+            bigCoreCount = cores;
+            return bigCoreCount;
+        }
+        int count = 0;
+        for (long frequency : maxFrequency) {
+            if (frequency >= fastest * BIG_CORE_FREQUENCY_RATIO) count++;
+        }
+        bigCoreCount = Math.max(1, count);
+        return bigCoreCount;
+    }
+
+    // Fork/join pool with one thread per big core, created on first use. Shared by every parallel
+    // stage (decode, frame conversion) so the process keeps a single set of worker threads.
+    public static synchronized ForkJoinPool workerPool() {
+        if (workerPool == null) {
+            workerPool = new ForkJoinPool(bigCoreCount());
+        }
+        return workerPool;
+    }
+
+    // Max clock of one core in kHz, 0 if the sysfs node is missing or unreadable
+    private static long readMaxFrequency(int cpu) {
+        String path = "/sys/devices/system/cpu/cpu" + cpu + "/cpufreq/cpuinfo_max_freq";
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            String line = reader.readLine();
+            return line == null ? 0 : Long.parseLong(line.trim());
+        } catch (IOException | NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.detectify.CameraActivity;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the row-striped parallel YUV420 to ARGB8888 conversion gives exactly the pixels of
+ * the serial one, for planar and semi-planar chroma, padded strides and odd frame sizes.
+ */
+public class ImageProcessTest {
+
+    private static void assertParallelMatchesSerial(ImageProcess imageProcess, Random random,
+                                                    int width, int height, int rowPadding, int uvPixelStride) {
+        int yRowStride = width + rowPadding;
+        int uvWidth = (width + 1) / 2;
+        int uvRowStride = uvWidth * uvPixelStride + rowPadding;
+        int uvHeight = (height + 1) / 2;
+        byte[] y = new byte[yRowStride * height];
+        byte[] u = new byte[uvRowStride * uvHeight];
+        byte[] v = new byte[uvRowStride * uvHeight];
+        random.nextBytes(y);
+        random.nextBytes(u);
+        random.nextBytes(v);
+
+        int[] serial = new int[width * height];
+        int[] parallel = new int[width * height];
+        imageProcess.YUV420ToARGB8888(y, u, v, width, height, yRowStride, uvRowStride, uvPixelStride, serial);
+        imageProcess.YUV420ToARGB8888Parallel(y, u, v, width, height, yRowStride, uvRowStride, uvPixelStride, parallel);
+        assertArrayEquals(width + "x" + height + " stride " + yRowStride + " pixel stride " + uvPixelStride,
+                serial, parallel);
+    }
+
+    @Test
+    public void parallelMatchesSerial() {
+        Random random = new Random(7);
+        int[][] sizes = {{1440, 1080}, {640, 480}, {641, 479}, {33, 17}, {8, 3}, {5, 1}};
+        // Fixed band counts, so the striping is exercised whatever the build machine's cores.
+        for (int bands : new int[]{2, 3, 4, 8}) {
+            ImageProcess imageProcess = new ImageProcess(bands);
+            for (int[] size : sizes) {
+                for (int uvPixelStride = 1; uvPixelStride <= 2; uvPixelStride++) {
+                    assertParallelMatchesSerial(imageProcess, random, size[0], size[1], 0, uvPixelStride);
+                    assertParallelMatchesSerial(imageProcess, random, size[0], size[1], 64, uvPixelStride);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void parallelConversionIsReusable() {
+        // The band tasks are reused from call to call.
+        ImageProcess imageProcess = new ImageProcess(4);
+        Random random = new Random(11);
+        for (int i = 0; i < 20; i++) {
+            assertParallelMatchesSerial(imageProcess, random, 320 + i, 240 - i, i % 3 * 16, 1 + i % 2);
+        }
+    }
+}
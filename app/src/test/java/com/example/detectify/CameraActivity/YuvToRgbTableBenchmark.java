@@ -0,0 +1,51 @@
+package com.example.detectify.CameraActivity;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Times the per-pixel YUV2RGB loop against the lookup-table conversion on a 1440x1080 frame,
+ * the analysis resolution of a 4:3 camera stream. Not part of the unit suite; remove the
+ * {@code @Ignore} to run it.
+ */
+@Ignore("Benchmark, run by hand")
+public class YuvToRgbTableBenchmark {
+    private static final int WIDTH = 1440;
+    private static final int HEIGHT = 1080;
+    private static final int REPEATS = 30;
+
+    @Test
+    public void perPixelVersusTable() {
+        ImageProcess imageProcess = new ImageProcess();
+        Random random = new Random(5);
+        // Semi-planar chroma, as most devices deliver it.
+        int uvPixelStride = 2;
+        int uvRowStride = WIDTH;
+        byte[] y = new byte[WIDTH * HEIGHT];
+        byte[] u = new byte[uvRowStride * HEIGHT / 2];
+        byte[] v = new byte[u.length];
+        random.nextBytes(y);
+        random.nextBytes(u);
+        random.nextBytes(v);
+        int[] out = new int[WIDTH * HEIGHT];
+
+        for (int i = 0; i < REPEATS; i++) {
+            YuvToRgbTableTest.convertPerPixel(imageProcess, y, u, v, WIDTH, HEIGHT, WIDTH, uvRowStride, uvPixelStride, out);
+            imageProcess.YUV420ToARGB8888(y, u, v, WIDTH, HEIGHT, WIDTH, uvRowStride, uvPixelStride, out);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < REPEATS; i++) {
+            YuvToRgbTableTest.convertPerPixel(imageProcess, y, u, v, WIDTH, HEIGHT, WIDTH, uvRowStride, uvPixelStride, out);
+        }
+        long perPixel = (System.nanoTime() - start) / REPEATS;
+        start = System.nanoTime();
+        for (int i = 0; i < REPEATS; i++) {
+            imageProcess.YUV420ToARGB8888(y, u, v, WIDTH, HEIGHT, WIDTH, uvRowStride, uvPixelStride, out);
+        }
+        long table = (System.nanoTime() - start) / REPEATS;
+        System.out.println(String.format("%dx%d  per-pixel %.2f ms  table %.2f ms",
+                WIDTH, HEIGHT, perPixel / 1e6, table / 1e6));
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.detectify.CameraActivity;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the lookup-table conversion matches {@link ImageProcess#YUV2RGB} for every YUV
+ * triple, and that whole frames match the per-pixel loop, including odd sizes and bands that
+ * start or end inside a chroma row pair.
+ */
+public class YuvToRgbTableTest {
+
+    // The original per-pixel body of YUV420ToARGB8888.
+    static void convertPerPixel(ImageProcess imageProcess, byte[] yData, byte[] uData, byte[] vData, int width, int height,
+                                int yRowStride, int uvRowStride, int uvPixelStride, int[] out) {
+        int yp = 0;
+        for (int j = 0; j < height; j++) {
+            int pY = yRowStride * j;
+            int pUV = uvRowStride * (j >> 1);
+            for (int i = 0; i < width; i++) {
+                int uvOffset = pUV + (i >> 1) * uvPixelStride;
+                out[yp++] = imageProcess.YUV2RGB(0xff & yData[pY + i], 0xff & uData[uvOffset], 0xff & vData[uvOffset]);
+            }
+        }
+    }
+
+    @Test
+    public void everyPixelMatchesYuv2Rgb() {
+        ImageProcess imageProcess = new ImageProcess();
+        for (int y = 0; y < 256; y++) {
+            for (int u = 0; u < 256; u++) {
+                for (int v = 0; v < 256; v++) {
+                    int expected = imageProcess.YUV2RGB(y, u, v);
+                    int actual = YuvToRgbTable.argb(y, u, v);
+                    if (expected != actual) {
+                        fail("y=" + y + " u=" + u + " v=" + v + ": " + Integer.toHexString(expected)
+                                + " != " + Integer.toHexString(actual));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void framesMatchPerPixelConversion() {
+        ImageProcess imageProcess = new ImageProcess();
+        Random random = new Random(3);
+        int[][] sizes = {{1440, 1080}, {641, 479}, {7, 5}, {1, 1}, {2, 3}};
+        for (int[] size : sizes) {
+            for (int uvPixelStride = 1; uvPixelStride <= 2; uvPixelStride++) {
+                int width = size[0];
+                int height = size[1];
+                int yRowStride = width + 32;
+                int uvRowStride = (width + 1) / 2 * uvPixelStride + 32;
+                byte[] y = new byte[yRowStride * height];
+                byte[] u = new byte[uvRowStride * ((height + 1) / 2)];
+                byte[] v = new byte[u.length];
+                random.nextBytes(y);
+                random.nextBytes(u);
+                random.nextBytes(v);
+
+                int[] expected = new int[width * height];
+                convertPerPixel(imageProcess, y, u, v, width, height, yRowStride, uvRowStride, uvPixelStride, expected);
+                int[] actual = new int[width * height];
+                imageProcess.YUV420ToARGB8888(y, u, v, width, height, yRowStride, uvRowStride, uvPixelStride, actual);
+                assertArrayEquals(width + "x" + height, expected, actual);
+
+                // Bands with odd boundaries, as the parallel conversion produces.
+                int[] banded = new int[width * height];
+                for (int from = 0, step = 3; from < height; from += step, step = step % 4 + 1) {
+                    YuvToRgbTable.convertRows(y, u, v, width, from, Math.min(height, from + step),
+                            yRowStride, uvRowStride, uvPixelStride, banded);
+                }
+                assertArrayEquals(width + "x" + height + " banded", expected, banded);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.detectify.Detector;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that closing the pool waits for the slots in use and never leaves a caller blocked.
+ */
+public class InterpreterPoolTest {
+
+    private static InterpreterPool newPool(int size) {
+        InterpreterPool.Slot[] slots = new InterpreterPool.Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new InterpreterPool.Slot();
+        }
+        return new InterpreterPool(Arrays.asList(slots));
+    }
+
+    @Test(timeout = 5000)
+    public void closeWakesWaitingAcquire() throws Exception {
+        InterpreterPool pool = newPool(1);
+        InterpreterPool.Slot busy = pool.acquire();
+        AtomicReference<InterpreterPool.Slot> acquired = new AtomicReference<>(busy);
+        CountDownLatch waiting = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            waiting.countDown();
+            acquired.set(pool.acquire());
+        });
+        waiter.start();
+        waiting.await();
+
+        Thread closer = new Thread(pool::close);
+        closer.start();
+        waiter.join();
+        assertNull(acquired.get());
+
+        // close() waits for the slot in use, then hands it back to be closed.
+        assertTrue(closer.isAlive());
+        pool.release(busy);
+        closer.join();
+        assertTrue(pool.isClosed());
+    }
+
+    @Test(timeout = 5000)
+    public void closedPoolFailsFast() {
+        InterpreterPool pool = newPool(2);
+        List<InterpreterPool.Slot> slots = pool.close();
+        assertEquals(2, slots.size());
+        assertNull(pool.acquire());
+        assertNull(pool.tryAcquire());
+        assertNull(pool.acquireAll());
+        assertTrue(pool.close().isEmpty());
+    }
+
+    @Test(timeout = 5000)
+    public void acquireAllGivesUpOnClose() throws Exception {
+        InterpreterPool pool = newPool(2);
+        InterpreterPool.Slot busy = pool.acquire();
+        AtomicReference<List<InterpreterPool.Slot>> all = new AtomicReference<>();
+        Thread resizer = new Thread(() -> all.set(pool.acquireAll()));
+        resizer.start();
+        Thread closer = new Thread(pool::close);
+        closer.start();
+        resizer.join();
+        assertNull(all.get());
+        pool.release(busy);
+        closer.join();
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.detectify.Detector;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Times pairwise against grid suppression on dense spike-like box sets of growing size.
+ * The candidate count where grid starts winning is what {@link NonMaxSuppression#GRID_CROSSOVER} is set from.
+ *
+ * Not part of the unit suite; remove the {@code @Ignore} to run it. Every size is run once
+ * before timing so the small sizes are not measured while the JIT is still compiling, and
+ * the best of several rounds is printed.
+ */
+@Ignore("Benchmark, run by hand")
+public class NonMaxSuppressionBenchmark {
+    private static final int[] SIZES = {16, 24, 32, 40, 48, 64, 96, 128, 256, 512, 1024, 2048};
+    private static final int ROUNDS = 5;
+
+    private static long time(NonMaxSuppression nms, CandidateBuffer c, SuppressionMode mode, int repeats) {
+        nms.setMode(mode);
+        long start = System.nanoTime();
+        for (int i = 0; i < repeats; i++) nms.run(c, 0.5f, 0.7f);
+        return (System.nanoTime() - start) / repeats;
+    }
+
+    @Test
+    public void pairwiseVersusGrid() {
+        Random random = new Random(1);
+        CandidateBuffer[] sets = new CandidateBuffer[SIZES.length];
+        NonMaxSuppression[] engines = new NonMaxSuppression[SIZES.length];
+        for (int s = 0; s < SIZES.length; s++) {
+            // Roughly one cluster of overlapping boxes per 8 candidates, as in a mature plot.
+            sets[s] = NonMaxSuppressionTest.randomCandidates(random, SIZES[s], Math.max(1, SIZES[s] / 8));
+            engines[s] = new NonMaxSuppression(SIZES[s], 2, 640, 640);
+        }
+        long[] pairwise = new long[SIZES.length];
+        long[] grid = new long[SIZES.length];
+        Arrays.fill(pairwise, Long.MAX_VALUE);
+        Arrays.fill(grid, Long.MAX_VALUE);
+        for (int round = -1; round < ROUNDS; round++) {
+            for (int s = 0; s < SIZES.length; s++) {
+                int repeats = Math.max(5, 20000 / SIZES[s]);
+                long p = time(engines[s], sets[s], SuppressionMode.PAIRWISE, repeats);
+                long g = time(engines[s], sets[s], SuppressionMode.GRID, repeats);
+                // Round -1 only warms up.
+                if (round >= 0) {
+                    pairwise[s] = Math.min(pairwise[s], p);
+                    grid[s] = Math.min(grid[s], g);
+                }
+            }
+        }
+        System.out.println("candidates  pairwise(us)  grid(us)");
+        for (int s = 0; s < SIZES.length; s++) {
+            System.out.println(String.format("%10d  %12.1f  %8.1f", SIZES[s], pairwise[s] / 1000.0, grid[s] / 1000.0));
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.detectify.Detector;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the class-bucketed engine matches a list based reference of the original
+ * per-class and all-class passes, and that grid suppression gives exactly the same detections
+ * as the pairwise scan.
+ */
+public class NonMaxSuppressionTest {
+    private static final int SIZE = 640;
+    private static final int CLASSES = 2;
+
+    static CandidateBuffer randomCandidates(Random random, int count, int clusters) {
+        CandidateBuffer c = new CandidateBuffer(count);
+        float[][] centers = new float[clusters][2];
+        for (float[] center : centers) {
+            center[0] = random.nextFloat() * SIZE;
+            center[1] = random.nextFloat() * SIZE;
+        }
+        for (int i = 0; i < count; i++) {
+            float[] center = centers[random.nextInt(clusters)];
+            float x = center[0] + (float) random.nextGaussian() * 12;
+            float y = center[1] + (float) random.nextGaussian() * 12;
+            float w = 10 + random.nextFloat() * 80;
+            float h = 10 + random.nextFloat() * 80;
+            // Same integer clamping as the decoder, and coarse confidences so ties happen.
+            int xmin = (int) Math.max(0, x - w / 2.);
+            int ymin = (int) Math.max(0, y - h / 2.);
+            int xmax = (int) Math.min(SIZE, x + w / 2.);
+            int ymax = (int) Math.min(SIZE, y + h / 2.);
+            float confidence = 0.5f + (1 + random.nextInt(32)) / 64f;
+            c.add(xmin, ymin, xmax, ymax, confidence, confidence, random.nextInt(CLASSES), i);
+        }
+        return c;
+    }
+
+    static int[] run(CandidateBuffer c, SuppressionMode mode, float iou, float duplicated) {
+        NonMaxSuppression nms = new NonMaxSuppression(c.count, CLASSES, SIZE, SIZE);
+        nms.setMode(mode);
+        int n = nms.run(c, iou, duplicated);
+        return Arrays.copyOf(nms.getResult(), n);
+    }
+
+    /** The original algorithm: re-sort per class, greedy scan, then sort and scan all classes. */
+    static int[] reference(CandidateBuffer c, float iou, float duplicated) {
+        List<Integer> all = new ArrayList<>();
+        for (int i = 0; i < c.count; i++) all.add(i);
+        List<Integer> perClass = new ArrayList<>();
+        for (int label = 0; label < CLASSES; label++) {
+            all.sort((a, b) -> Float.compare(c.confidence[b], c.confidence[a]));
+            boolean[] removed = new boolean[all.size()];
+            for (int j = 0; j < all.size(); j++) {
+                if (removed[j] || c.labelId[all.get(j)] != label) continue;
+                perClass.add(all.get(j));
+                for (int k = j + 1; k < all.size(); k++) {
+                    if (!removed[k] && c.labelId[all.get(k)] == label
+                            && NonMaxSuppression.boxIou(c, all.get(j), all.get(k)) > iou) {
+                        removed[k] = true;
+                    }
+                }
+            }
+        }
+        perClass.sort((a, b) -> Float.compare(c.confidence[b], c.confidence[a]));
+        List<Integer> out = new ArrayList<>();
+        boolean[] removed = new boolean[perClass.size()];
+        for (int i = 0; i < perClass.size(); i++) {
+            if (removed[i]) continue;
+            out.add(perClass.get(i));
+            for (int j = i + 1; j < perClass.size(); j++) {
+                if (!removed[j] && NonMaxSuppression.boxIou(c, perClass.get(i), perClass.get(j)) > duplicated) {
+                    removed[j] = true;
+                }
+            }
+        }
+        int[] result = new int[out.size()];
+        for (int i = 0; i < result.length; i++) result[i] = out.get(i);
+        return result;
+    }
+
+    @Test
+    public void pairwiseMatchesOriginalNms() {
+        Random random = new Random(42);
+        for (int trial = 0; trial < 200; trial++) {
+            CandidateBuffer c = randomCandidates(random, 1 + random.nextInt(300), 1 + random.nextInt(20));
+            assertArrayEquals(reference(c, 0.5f, 0.7f), run(c, SuppressionMode.PAIRWISE, 0.5f, 0.7f));
+        }
+    }
+
+    @Test
+    public void gridMatchesPairwiseOnRandomBoxes() {
+        Random random = new Random(7);
+        float[] thresholds = {0f, 0.2f, 0.45f, 0.5f, 0.7f, 0.95f};
+        for (int trial = 0; trial < 300; trial++) {
+            CandidateBuffer c = randomCandidates(random, 1 + random.nextInt(1500), 1 + random.nextInt(60));
+            float iou = thresholds[random.nextInt(thresholds.length)];
+            float duplicated = thresholds[random.nextInt(thresholds.length)];
+            assertArrayEquals(run(c, SuppressionMode.PAIRWISE, iou, duplicated),
+                    run(c, SuppressionMode.GRID, iou, duplicated));
+        }
+    }
+
+    @Test
+    public void autoMatchesPairwise() {
+        Random random = new Random(3);
+        for (int trial = 0; trial < 50; trial++) {
+            CandidateBuffer c = randomCandidates(random, 1 + random.nextInt(2000), 1 + random.nextInt(100));
+            assertArrayEquals(run(c, SuppressionMode.PAIRWISE, 0.5f, 0.7f), run(c, SuppressionMode.AUTO, 0.5f, 0.7f));
+        }
+    }
+
+    @Test
+    public void emptyInputKeepsNothing() {
+        CandidateBuffer c = new CandidateBuffer(4);
+        assertEquals(0, run(c, SuppressionMode.GRID, 0.5f, 0.7f).length);
+    }
+}
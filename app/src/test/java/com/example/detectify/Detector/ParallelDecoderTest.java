@@ -0,0 +1,96 @@
+package com.example.detectify.Detector;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that splitting the decode over several workers keeps the same detections after NMS as
+ * a single decoder, with and without a candidate limit, on outputs full of tied confidences.
+ */
+public class ParallelDecoderTest {
+    private static final int SIZE = 640;
+    private static final int CLASSES = 2;
+    private static final int ROWS = 3000;
+    private static final int STRIDE = 5 + CLASSES;
+
+    /** Raw output rows around a few clusters, with confidences from a small set so ties are common. */
+    static float[] randomOutput(Random random, int rows) {
+        float[] output = new float[rows * STRIDE];
+        float[][] centers = new float[6][2];
+        for (float[] center : centers) {
+            center[0] = random.nextFloat();
+            center[1] = random.nextFloat();
+        }
+        for (int i = 0; i < rows; i++) {
+            float[] center = centers[random.nextInt(centers.length)];
+            int g = i * STRIDE;
+            output[g] = center[0] + (float) random.nextGaussian() * 0.02f;
+            output[g + 1] = center[1] + (float) random.nextGaussian() * 0.02f;
+            output[g + 2] = 0.02f + random.nextFloat() * 0.12f;
+            output[g + 3] = 0.02f + random.nextFloat() * 0.12f;
+            output[g + 4] = random.nextInt(8) / 8f;
+            for (int j = 5; j < STRIDE; j++) {
+                output[g + j] = random.nextInt(4) / 4f;
+            }
+        }
+        return output;
+    }
+
+    /** Output rows of the detections kept after NMS, in result order. */
+    static int[] keptRows(CandidateBuffer candidates) {
+        NonMaxSuppression nms = new NonMaxSuppression(ROWS, CLASSES, SIZE, SIZE);
+        int n = nms.run(candidates, 0.45f, 0.8f);
+        int[] rows = new int[n];
+        for (int k = 0; k < n; k++) {
+            rows[k] = candidates.row[nms.getResult()[k]];
+        }
+        return rows;
+    }
+
+    @Test
+    public void parallelMatchesSerialOnTies() {
+        Random random = new Random(5);
+        YoloOutputDecoder serial = new YoloOutputDecoder(SIZE, SIZE, ROWS, STRIDE);
+        CandidateBuffer serialOut = new CandidateBuffer(ROWS);
+        CandidateBuffer parallelOut = new CandidateBuffer(ROWS);
+        ParallelDecoder[] parallel = new ParallelDecoder[5];
+        for (int w = 0; w < parallel.length; w++) {
+            parallel[w] = new ParallelDecoder(w + 2, SIZE, SIZE, ROWS, STRIDE, null);
+        }
+        for (int trial = 0; trial < 50; trial++) {
+            float[] output = randomOutput(random, ROWS);
+            for (int limit : new int[]{0, 100, 300}) {
+                serial.setMaxCandidates(limit);
+                serial.decode(output, 0.25f, serialOut);
+                int[] expected = keptRows(serialOut);
+                for (ParallelDecoder decoder : parallel) {
+                    decoder.decode(output, 0.25f, limit, ~0, parallelOut);
+                    assertEquals(serialOut.count, parallelOut.count);
+                    assertArrayEquals("trial " + trial + ", limit " + limit + ", " + decoder.getWorkers() + " workers",
+                            expected, keptRows(parallelOut));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void nmsDoesNotDependOnBufferOrder() {
+        // The same candidates in reverse buffer order keep the same rows.
+        Random random = new Random(9);
+        YoloOutputDecoder decoder = new YoloOutputDecoder(SIZE, SIZE, ROWS, STRIDE);
+        CandidateBuffer forward = new CandidateBuffer(ROWS);
+        CandidateBuffer reversed = new CandidateBuffer(ROWS);
+        for (int trial = 0; trial < 20; trial++) {
+            decoder.decode(randomOutput(random, ROWS), 0.25f, forward);
+            reversed.clear();
+            for (int i = forward.count - 1; i >= 0; i--) {
+                reversed.add(forward.left[i], forward.top[i], forward.right[i], forward.bottom[i],
+                        forward.confidence[i], forward.labelScore[i], forward.labelId[i], forward.row[i]);
+            }
+            assertArrayEquals("trial " + trial, keptRows(forward), keptRows(reversed));
+        }
+    }
+}
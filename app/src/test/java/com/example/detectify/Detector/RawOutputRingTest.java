@@ -0,0 +1,45 @@
+package com.example.detectify.Detector;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that recording hands arrays over instead of copying them, and that an array handed
+ * back is never one the ring still replays.
+ */
+public class RawOutputRingTest {
+    private static final int ROWS = 10;
+    private static final int STRIDE = 7;
+
+    private static RawOutputRing newRing(int capacity) {
+        return new RawOutputRing(capacity, false, new YoloOutputDecoder(640, 640, ROWS, STRIDE),
+                new NonMaxSuppression(ROWS, STRIDE - 5, 640, 640));
+    }
+
+    @Test
+    public void recordSwapsArrays() {
+        RawOutputRing ring = newRing(2);
+        float[] output = new float[ROWS * STRIDE];
+        for (int frame = 0; frame < 5; frame++) {
+            output[0] = frame;
+            float[] recorded = output;
+            output = ring.record(output);
+            assertSame(recorded, ring.floatOutput(0));
+            assertNotSame(ring.floatOutput(0), output);
+            if (ring.size() > 1) {
+                assertNotSame(ring.floatOutput(1), output);
+                assertEquals(frame - 1, ring.floatOutput(1)[0], 0f);
+            }
+        }
+        assertEquals(2, ring.size());
+    }
+
+    @Test
+    public void otherLengthIsNotKept() {
+        RawOutputRing ring = newRing(2);
+        float[] output = new float[3];
+        assertSame(output, ring.record(output));
+        assertEquals(0, ring.size());
+    }
+}
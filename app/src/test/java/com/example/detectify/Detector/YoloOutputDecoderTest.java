@@ -0,0 +1,91 @@
+package com.example.detectify.Detector;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the candidate limit: the decoder keeps exactly the most confident rows, ties going to
+ * the earlier row, and NMS over them gives the same detections as over those rows in row order.
+ */
+public class YoloOutputDecoderTest {
+    private static final int SIZE = 640;
+    private static final int CLASSES = 2;
+    private static final int ROWS = 3000;
+    private static final int STRIDE = 5 + CLASSES;
+
+    /** Rows of the {@code limit} most confident candidates, ties to the earlier row, in row order. */
+    static int[] expectedTop(CandidateBuffer all, int limit) {
+        Integer[] order = new Integer[all.count];
+        for (int i = 0; i < all.count; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> all.confidence[a] != all.confidence[b]
+                ? Float.compare(all.confidence[b], all.confidence[a]) : Integer.compare(all.row[a], all.row[b]));
+        int[] rows = new int[Math.min(limit, all.count)];
+        for (int k = 0; k < rows.length; k++) rows[k] = all.row[order[k]];
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    static int[] sortedRows(CandidateBuffer candidates) {
+        int[] rows = Arrays.copyOf(candidates.row, candidates.count);
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    /** The candidates of {@code all} whose rows are in {@code rows}, in row order. */
+    static CandidateBuffer subset(CandidateBuffer all, int[] rows) {
+        CandidateBuffer out = new CandidateBuffer(rows.length);
+        for (int i = 0; i < all.count; i++) {
+            if (Arrays.binarySearch(rows, all.row[i]) >= 0) {
+                out.add(all.left[i], all.top[i], all.right[i], all.bottom[i],
+                        all.confidence[i], all.labelScore[i], all.labelId[i], all.row[i]);
+            }
+        }
+        return out;
+    }
+
+    @Test
+    public void keepsTopCandidatesWithTiesToEarlierRows() {
+        Random random = new Random(3);
+        YoloOutputDecoder decoder = new YoloOutputDecoder(SIZE, SIZE, ROWS, STRIDE);
+        CandidateBuffer all = new CandidateBuffer(ROWS);
+        CandidateBuffer top = new CandidateBuffer(ROWS);
+        for (int trial = 0; trial < 30; trial++) {
+            float[] output = ParallelDecoderTest.randomOutput(random, ROWS);
+            decoder.setMaxCandidates(0);
+            decoder.decode(output, 0.25f, all);
+            for (int limit : new int[]{1, 10, 100, 1000, ROWS}) {
+                decoder.setMaxCandidates(limit);
+                decoder.decode(output, 0.25f, top);
+                int[] expected = expectedTop(all, limit);
+                assertArrayEquals("trial " + trial + ", limit " + limit, expected, sortedRows(top));
+                assertArrayEquals("trial " + trial + ", limit " + limit,
+                        ParallelDecoderTest.keptRows(subset(all, expected)), ParallelDecoderTest.keptRows(top));
+            }
+        }
+    }
+
+    @Test
+    public void quantizedKeepsTopCandidates() {
+        Random random = new Random(4);
+        YoloOutputDecoder decoder = new YoloOutputDecoder(SIZE, SIZE, ROWS, STRIDE);
+        CandidateBuffer all = new CandidateBuffer(ROWS);
+        CandidateBuffer top = new CandidateBuffer(ROWS);
+        float scale = 1 / 255f;
+        for (int trial = 0; trial < 10; trial++) {
+            float[] values = ParallelDecoderTest.randomOutput(random, ROWS);
+            byte[] output = new byte[values.length];
+            for (int i = 0; i < values.length; i++) {
+                output[i] = (byte) Math.max(0, Math.min(255, Math.round(values[i] / scale)));
+            }
+            decoder.setMaxCandidates(0);
+            decoder.decodeQuantized(output, 0.25f, scale, 0, all);
+            decoder.setMaxCandidates(50);
+            decoder.decodeQuantized(output, 0.25f, scale, 0, top);
+            assertArrayEquals("trial " + trial, expectedTop(all, 50), sortedRows(top));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.detectify.Detector;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks how {@code detect(List<Bitmap>)} splits images into batches: a single image runs on
+ * its own without batched tensors, and a short last batch still covers every image. Also
+ * checks which resized outputs are taken for the stride 8, 16 and 32 head layout.
+ */
+public class Yolov5TFLiteDetectorTest {
+
+    @Test
+    public void singleImageIsNotBatched() {
+        assertEquals(1, Yolov5TFLiteDetector.batchSizeFor(1));
+        List<int[]> ranges = Yolov5TFLiteDetector.batchRanges(1, 1);
+        assertEquals(1, ranges.size());
+        assertArrayEquals(new int[]{0, 1}, ranges.get(0));
+    }
+
+    @Test
+    public void shortLastBatchCoversEveryImage() {
+        int count = Yolov5TFLiteDetector.MAX_BATCH_SIZE + 1;
+        int batchSize = Yolov5TFLiteDetector.batchSizeFor(count);
+        assertEquals(Yolov5TFLiteDetector.MAX_BATCH_SIZE, batchSize);
+        List<int[]> ranges = Yolov5TFLiteDetector.batchRanges(count, batchSize);
+        assertEquals(2, ranges.size());
+        assertArrayEquals(new int[]{0, batchSize}, ranges.get(0));
+        assertArrayEquals(new int[]{batchSize, count}, ranges.get(1));
+    }
+
+    @Test
+    public void rangesAreContiguous() {
+        for (int count = 1; count <= 3 * Yolov5TFLiteDetector.MAX_BATCH_SIZE + 1; count++) {
+            int batchSize = Yolov5TFLiteDetector.batchSizeFor(count);
+            int next = 0;
+            for (int[] range : Yolov5TFLiteDetector.batchRanges(count, batchSize)) {
+                assertEquals(next, range[0]);
+                assertTrue(range[1] - range[0] <= batchSize && range[1] > range[0]);
+                next = range[1];
+            }
+            assertEquals(count, next);
+        }
+    }
+
+    @Test
+    public void resizedOutputMatchesHeadLayout() {
+        for (int size : Yolov5TFLiteDetector.SUPPORTED_INPUT_SIZES) {
+            int rows = Yolov5TFLiteDetector.outputRowsFor(size);
+            assertTrue(Yolov5TFLiteDetector.matchesHeadLayout(new int[]{1, rows, 7}, size, 7));
+        }
+        assertEquals(25200, Yolov5TFLiteDetector.outputRowsFor(640));
+    }
+
+    @Test
+    public void bakedInGridIsRejected() {
+        // A graph with 640 grid constants keeps its exported rows after a resize to 416.
+        assertFalse(Yolov5TFLiteDetector.matchesHeadLayout(new int[]{1, 25200, 7}, 416, 7));
+        assertFalse(Yolov5TFLiteDetector.matchesHeadLayout(new int[]{1, Yolov5TFLiteDetector.outputRowsFor(416), 6}, 416, 7));
+        assertFalse(Yolov5TFLiteDetector.matchesHeadLayout(new int[]{2, Yolov5TFLiteDetector.outputRowsFor(416), 7}, 416, 7));
+        assertFalse(Yolov5TFLiteDetector.matchesHeadLayout(new int[]{Yolov5TFLiteDetector.outputRowsFor(416), 7}, 416, 7));
+    }
+}